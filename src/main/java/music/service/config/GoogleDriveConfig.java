@@ -1,29 +1,75 @@
 package music.service.config;
 
-import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.DriveScopes;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.GeneralSecurityException;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class GoogleDriveConfig {
 
+    @Value("${media.drive.http.connect-timeout-ms:5000}")
+    private int connectTimeoutMillis;
+
+    @Value("${media.drive.http.read-timeout-ms:30000}")
+    private int readTimeoutMillis;
+
+    /**
+     * Транспорт с пулом keep-alive соединений вместо {@code NetHttpTransport},
+     * который переиспользует соединения только через глобальный кеш {@code HttpURLConnection}.
+     */
     @Bean
-    public Drive driveService() throws GeneralSecurityException, IOException {
+    public HttpTransport driveHttpTransport(
+            MeterRegistry meterRegistry,
+            @Value("${media.drive.http.max-total:32}") int maxTotal,
+            @Value("${media.drive.http.max-per-route:32}") int maxPerRoute,
+            @Value("${media.drive.http.keep-alive-ms:60000}") long keepAliveMillis,
+            @Value("${media.drive.http.time-to-live-ms:300000}") long timeToLiveMillis,
+            @Value("${media.drive.http.idle-evict-ms:30000}") long idleEvictMillis,
+            @Value("${media.drive.http.lease-timeout-ms:2000}") long leaseTimeoutMillis,
+            @Value("${media.drive.http.validate-after-inactivity-ms:2000}") int validateAfterInactivityMillis) {
+        InstrumentedConnectionManager connectionManager =
+                new InstrumentedConnectionManager(meterRegistry, timeToLiveMillis, leaseTimeoutMillis);
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMillis);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .setConnectionRequestTimeout((int) leaseTimeoutMillis)
+                .build();
+
+        return new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictMillis, TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    @Bean
+    public Drive driveService(HttpTransport driveHttpTransport) throws IOException {
         InputStream keyFile = new ClassPathResource("service-account.json").getInputStream();
         GoogleCredentials credentials = GoogleCredentials.fromStream(keyFile)
                 .createScoped(Arrays.asList(
@@ -32,11 +78,16 @@ public class GoogleDriveConfig {
                         DriveScopes.DRIVE_READONLY
                 ));
 
-
-        final NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
         GsonFactory jsonFactory = GsonFactory.getDefaultInstance();
+        HttpCredentialsAdapter credentialsAdapter = new HttpCredentialsAdapter(credentials);
+        // Таймауты задаются на каждый запрос: клиент Google переопределяет RequestConfig транспорта
+        HttpRequestInitializer requestInitializer = request -> {
+            credentialsAdapter.initialize(request);
+            request.setConnectTimeout(connectTimeoutMillis);
+            request.setReadTimeout(readTimeoutMillis);
+        };
 
-        return new Drive.Builder(httpTransport, jsonFactory, new HttpCredentialsAdapter(credentials))
+        return new Drive.Builder(driveHttpTransport, jsonFactory, requestInitializer)
                 .setApplicationName("Music-Service")
                 .build();
     }
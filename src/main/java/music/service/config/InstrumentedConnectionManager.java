@@ -0,0 +1,68 @@
+package music.service.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * Пул соединений к Google Drive, публикующий занятость пула и время ожидания
+ * свободного соединения. Если вызывающий код не задал таймаут ожидания,
+ * используется настроенный, чтобы запрос не ждал пул бесконечно.
+ */
+class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final long leaseTimeoutMillis;
+    private final Timer leaseTimer;
+
+    InstrumentedConnectionManager(MeterRegistry meterRegistry, long timeToLiveMillis, long leaseTimeoutMillis) {
+        super(timeToLiveMillis, TimeUnit.MILLISECONDS);
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        this.leaseTimer = Timer.builder("drive.http.pool.wait")
+                .description("Time spent waiting for a pooled Google Drive connection")
+                .register(meterRegistry);
+
+        Gauge.builder("drive.http.pool.leased", this, manager -> manager.getTotalStats().getLeased())
+                .description("Google Drive connections in use")
+                .register(meterRegistry);
+        Gauge.builder("drive.http.pool.available", this, manager -> manager.getTotalStats().getAvailable())
+                .description("Idle Google Drive connections kept alive")
+                .register(meterRegistry);
+        Gauge.builder("drive.http.pool.pending", this, manager -> manager.getTotalStats().getPending())
+                .description("Requests waiting for a Google Drive connection")
+                .register(meterRegistry);
+        Gauge.builder("drive.http.pool.max", this, manager -> manager.getTotalStats().getMax())
+                .description("Google Drive connection pool size")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest delegate = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long startedAt = System.nanoTime();
+                try {
+                    return timeout > 0
+                            ? delegate.get(timeout, timeUnit)
+                            : delegate.get(leaseTimeoutMillis, TimeUnit.MILLISECONDS);
+                } finally {
+                    leaseTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return delegate.cancel();
+            }
+        };
+    }
+}
@@ -0,0 +1,247 @@
+package music.service.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Выбирает базу для каждого нового соединения: read-only транзакции уходят на
+ * здоровые реплики по кругу, всё остальное — на primary. Реплика, которая не
+ * отвечает или отстаёт сильнее допустимого, исключается до следующей успешной
+ * проверки; если здоровых реплик нет, чтение идёт на primary.
+ *
+ * <p>После записи чтения того же пользователя (и того же HTTP-запроса) какое-то
+ * время идут на primary, чтобы он видел собственные изменения, ещё не дошедшие
+ * до реплик.
+ *
+ * <p>Перед чтением с реплики вызывается {@link #setReplicaReadListener слушатель}:
+ * через него сессия Hibernate перестаёт класть в кэш второго уровня данные,
+ * которые на реплике могут быть старее уже закоммиченной записи.
+ *
+ * <p>Работает только за {@code LazyConnectionDataSourceProxy}: JPA берёт соединение
+ * в начале транзакции, ещё до того, как она помечена как read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PINNED_ATTRIBUTE = ReplicaRoutingDataSource.class.getName() + ".PINNED";
+
+    private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long pinMillis;
+    private final long maxLagMillis;
+    private final LongSupplier clock;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService healthChecker;
+    private volatile Runnable replicaReadListener = () -> { };
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas,
+                                    long pinMillis, long maxLagMillis, long healthCheckIntervalMillis) {
+        this(primary, replicas, pinMillis, maxLagMillis, System::currentTimeMillis);
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas,
+                             long pinMillis, long maxLagMillis, LongSupplier clock) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.pinMillis = pinMillis;
+        this.maxLagMillis = maxLagMillis;
+        this.clock = clock;
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = route();
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        Connection connection;
+        try {
+            connection = replica.dataSource().getConnection();
+        } catch (SQLException e) {
+            replica.markDown();
+            logger.warn("Replica {} is unavailable, reading from primary: {}", replica.name(), e.getMessage());
+            return primary.getConnection();
+        }
+        replicaReadListener.run();
+        return connection;
+    }
+
+    /**
+     * Задаёт действие, которое выполняется в потоке транзакции, когда её соединение
+     * получено с реплики.
+     */
+    public void setReplicaReadListener(Runnable replicaReadListener) {
+        this.replicaReadListener = replicaReadListener;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Явные учётные данные относятся к primary
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * @return реплика для текущего соединения или {@code null}, если нужен primary
+     */
+    Replica route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                pinCurrentCaller();
+            }
+            return null;
+        }
+        if (isCurrentCallerPinned()) {
+            return null;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isHealthy()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet lag = statement.executeQuery(LAG_QUERY)) {
+                long lagMillis = lag.next() ? lag.getLong(1) : Long.MAX_VALUE;
+                if (lagMillis > maxLagMillis) {
+                    replica.markDown();
+                    logger.warn("Replica {} lags {} ms behind primary, reading from other nodes",
+                            replica.name(), lagMillis);
+                } else if (!replica.isHealthy()) {
+                    replica.markUp();
+                    logger.info("Replica {} is healthy, lag {} ms", replica.name(), lagMillis);
+                }
+            } catch (SQLException e) {
+                if (replica.isHealthy()) {
+                    logger.warn("Replica {} failed health check: {}", replica.name(), e.getMessage());
+                }
+                replica.markDown();
+            } catch (RuntimeException e) {
+                replica.markDown();
+                logger.warn("Replica {} health check failed", replica.name(), e);
+            }
+        }
+        long now = clock.getAsLong();
+        pinnedUntil.values().removeIf(until -> until <= now);
+    }
+
+    private void pinCurrentCaller() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(PINNED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+        String user = currentUser();
+        if (user != null && pinMillis > 0) {
+            pinnedUntil.put(user, clock.getAsLong() + pinMillis);
+        }
+    }
+
+    private boolean isCurrentCallerPinned() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            return true;
+        }
+        String user = currentUser();
+        if (user == null) {
+            return false;
+        }
+        Long until = pinnedUntil.get(user);
+        return until != null && until > clock.getAsLong();
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    @Override
+    public void destroy() {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Could not close replica pool {}: {}", replica.name(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    public static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        void markUp() {
+            healthy = true;
+        }
+
+        void markDown() {
+            healthy = false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package music.service.config;
+
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Создаёт расширение {@code pg_trgm} и GIN-индексы по названиям треков, альбомов
+ * и именам исполнителей, на которых работает поиск. Схему ведёт Hibernate
+ * ({@code ddl-auto}), поэтому индексы создаются после старта приложения
+ * и только на PostgreSQL.
+ */
+@Component
+public class TrigramIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrigramIndexInitializer.class);
+
+    private static final List<String> STATEMENTS = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS tracks_title_trgm_idx ON tracks USING gin (title gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS albums_title_trgm_idx ON albums USING gin (title gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS users_username_trgm_idx ON users USING gin (username gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS tracks_album_id_idx ON tracks (album_id)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    public TrigramIndexInitializer(JdbcTemplate jdbcTemplate,
+                                   @Value("${search.trigram.create-indexes:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        if (!enabled || !isPostgres()) {
+            logger.info("Skipping trigram search indexes");
+            return;
+        }
+        try {
+            STATEMENTS.forEach(jdbcTemplate::execute);
+            logger.info("Trigram search indexes are in place");
+        } catch (DataAccessException e) {
+            logger.error("Could not create trigram search indexes, search will scan tables", e);
+        }
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(product);
+    }
+}
@@ -6,8 +6,11 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
 import javax.validation.Valid;
 import music.service.dto.AlbumResponse;
+import music.service.dto.CursorPage;
+import music.service.dto.AlbumSummaryResponse;
 import music.service.dto.CreateAlbumRequest;
 import music.service.dto.UpdateAlbumRequest;
 import music.service.model.Album;
@@ -33,11 +36,12 @@ public class AlbumController {
     @GetMapping
     @Operation(
             summary = "Получить список альбомов",
-            description = "Возвращает пагинированный список альбомов с возможностью фильтрации",
+            description = "Возвращает пагинированный список альбомов с исполнителями, числом треков "
+                    + "и общей длительностью; треки альбома возвращает GET /albums/{id}",
             responses = @ApiResponse(
                     responseCode = "200", description = "Успешное получение списка")
     )
-    public ResponseEntity<Page<AlbumResponse>> getAllAlbums(
+    public ResponseEntity<Page<AlbumSummaryResponse>> getAllAlbums(
             @Parameter(description = "Фильтр по пользователю")
             @RequestParam(required = false) String user,
             @Parameter(description = "Фильтр по названию")
@@ -49,9 +53,37 @@ public class AlbumController {
             @Parameter(description = "Поле для сортировки")
             @RequestParam(required = false, defaultValue = "title") String sort
     ) {
-        Page<Album> albums = albumService.getAllAlbums(user, title, page, size, sort);
-        Page<AlbumResponse> responses = albums.map(albumService::mapToAlbumResponse);
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(albumService.getAlbumSummaries(user, title, page, size, sort));
+    }
+
+    @GetMapping("/scroll")
+    @Operation(
+            summary = "Листать альбомы по курсору",
+            description = "Keyset-пагинация: стоимость страницы не зависит от глубины. "
+                    + "Для следующей страницы передайте nextCursor из ответа"
+    )
+    public ResponseEntity<CursorPage<AlbumSummaryResponse>> scrollAlbums(
+            @Parameter(description = "Курсор из предыдущего ответа")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы")
+            @RequestParam(required = false, defaultValue = "10") int size,
+            @Parameter(description = "Поле для сортировки: id или title")
+            @RequestParam(required = false, defaultValue = "title") String sort) {
+        return ResponseEntity.ok(albumService.getAlbumSummariesAfter(cursor, size, sort));
+    }
+
+    @GetMapping("/search")
+    @Operation(
+            summary = "Поиск альбомов",
+            description = "Ищет по названию альбома и имени исполнителя с учётом опечаток; "
+                    + "лучшие совпадения первыми"
+    )
+    public ResponseEntity<List<AlbumSummaryResponse>> searchAlbums(
+            @Parameter(description = "Поисковый запрос", required = true)
+            @RequestParam("q") String query,
+            @Parameter(description = "Максимальное число результатов")
+            @RequestParam(required = false, defaultValue = "20") int limit) {
+        return ResponseEntity.ok(albumService.searchAlbums(query, limit));
     }
 
     @GetMapping("/{id}")
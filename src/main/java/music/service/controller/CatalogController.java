@@ -0,0 +1,72 @@
+package music.service.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.servlet.http.HttpServletRequest;
+import music.service.dto.CatalogImportResult;
+import music.service.service.CatalogExportService;
+import music.service.service.CatalogImportService;
+import music.service.service.CatalogImportService.Format;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/catalog")
+@Tag(name = "Catalog Import", description = "API для массовой загрузки каталога")
+public class CatalogController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final CatalogImportService catalogImportService;
+    private final CatalogExportService catalogExportService;
+
+    public CatalogController(CatalogImportService catalogImportService,
+                             CatalogExportService catalogExportService) {
+        this.catalogImportService = catalogImportService;
+        this.catalogExportService = catalogExportService;
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    @Operation(
+            summary = "Выгрузить каталог",
+            description = "Потоково отдаёт всех пользователей, альбомы, треки, плейлисты и связи между ними "
+                    + "в NDJSON, по одному объекту на строку, в формате импорта: выгрузку можно загрузить "
+                    + "обратно через /catalog/import. Пароли и роли пользователей не выгружаются"
+    )
+    public ResponseEntity<StreamingResponseBody> exportCatalog() {
+        StreamingResponseBody body = catalogExportService::export;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog.ndjson\"")
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {NDJSON, CSV}, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Импортировать каталог",
+            description = "Принимает поток строк NDJSON или CSV с пользователями, альбомами, треками, "
+                    + "плейлистами и связями между ними. Импорт выполняется целиком в одной транзакции: "
+                    + "при первой ошибке ничего не сохраняется",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Каталог импортирован"),
+                    @ApiResponse(responseCode = "400", description = "Ошибка в строке импорта")
+            }
+    )
+    public ResponseEntity<CatalogImportResult> importCatalog(
+            @Parameter(description = "Формат тела: application/x-ndjson или text/csv")
+            @RequestHeader("Content-Type") String contentType,
+            HttpServletRequest request) throws IOException {
+        Format format = contentType.startsWith(CSV) ? Format.CSV : Format.NDJSON;
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(catalogImportService.importCatalog(body, format));
+        }
+    }
+}
@@ -1,23 +1,49 @@
 package music.service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import music.service.service.ImageVariantService;
+import music.service.service.ImageVariantService.ImageVariant;
+import music.service.service.MediaPrefetcher;
 import music.service.service.MediaService;
 import music.service.service.MediaService.FileInfo;
+import music.service.service.MediaService.FilePage;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/media")
 public class MediaController {
 
+    static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
     private final MediaService mediaService;
+    private final MediaPrefetcher mediaPrefetcher;
+    private final ObjectMapper objectMapper;
+    private final ImageVariantService imageVariantService;
 
-    public MediaController(MediaService mediaService) {
+    public MediaController(MediaService mediaService,
+                           MediaPrefetcher mediaPrefetcher,
+                           ObjectMapper objectMapper,
+                           ImageVariantService imageVariantService) {
         this.mediaService = mediaService;
+        this.mediaPrefetcher = mediaPrefetcher;
+        this.objectMapper = objectMapper;
+        this.imageVariantService = imageVariantService;
     }
 
     @PostMapping("/upload")
@@ -27,9 +53,39 @@ public class MediaController {
                 .body("Файл загружен: " + webViewLink);
     }
 
+    /**
+     * Тело — прежний массив файлов; токен следующей страницы, если она есть,
+     * передаётся в заголовке {@value #NEXT_PAGE_TOKEN_HEADER}.
+     */
     @GetMapping("/files")
-    public ResponseEntity<List<FileInfo>> listFiles() throws IOException {
-        return ResponseEntity.ok(mediaService.listFiles());
+    public ResponseEntity<List<FileInfo>> listFiles(
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "100") int size) throws IOException {
+        FilePage page = mediaService.listFiles(pageToken, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextPageToken() != null) {
+            response.header(NEXT_PAGE_TOKEN_HEADER, page.nextPageToken());
+        }
+        return response.body(page.files());
+    }
+
+    @GetMapping(value = "/files/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFiles() {
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<FileInfo> files = mediaService.streamAllFiles()) {
+                Iterator<FileInfo> iterator = files.iterator();
+                while (iterator.hasNext()) {
+                    outputStream.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            outputStream.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/download/{fileId}")
@@ -43,16 +99,47 @@ public class MediaController {
                 .body(fileContent);
     }
 
+    @GetMapping("/images/{fileId}")
+    public ResponseEntity<byte[]> getImageVariant(@PathVariable String fileId,
+                                                  @RequestParam(defaultValue = "256") int size,
+                                                  WebRequest request) throws IOException {
+        int resolvedSize = imageVariantService.resolveSize(size);
+        String etag = "\"" + fileId + "-" + resolvedSize + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        Optional<ImageVariant> variant = imageVariantService.getVariant(fileId, resolvedSize);
+        if (variant.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(variant.get().contentType()))
+                // CacheControl в Spring 5.3 не умеет immutable, поэтому директива дописывается вручную
+                .header(HttpHeaders.CACHE_CONTROL,
+                        CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable")
+                .eTag(etag)
+                .body(variant.get().content());
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<FileInfo>> searchFiles(@RequestParam String query) throws IOException {
         return ResponseEntity.ok(mediaService.searchFiles(query));
     }
 
     @GetMapping("/stream/{fileId}")
-    public ResponseEntity<byte[]> streamFile(@PathVariable String fileId, @RequestHeader(value = "Range", required = false) String rangeHeader) throws IOException {
+    public ResponseEntity<StreamingResponseBody> streamFile(@PathVariable String fileId,
+                                                            @RequestHeader(value = "Range", required = false) String rangeHeader,
+                                                            @RequestParam(required = false) Long playlistId) throws IOException {
+        mediaPrefetcher.onStreamRequested(fileId, playlistId, rangeHeader);
         return mediaService.streamFile(fileId, rangeHeader);
     }
 
+    @RequestMapping(value = "/stream/{fileId}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> describeFile(@PathVariable String fileId) throws IOException {
+        return mediaService.describeFile(fileId);
+    }
+
     @DeleteMapping("/delete/{fileId}")
     public ResponseEntity<String> deleteFile(@PathVariable String fileId) {
         mediaService.deleteFile(fileId);
@@ -9,6 +9,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import java.util.Optional;
 import javax.validation.Valid;
 import music.service.dto.CreatePlaylistRequest;
+import music.service.dto.CursorPage;
 import music.service.dto.PlaylistResponse;
 import music.service.dto.UpdatePlaylistRequest;
 import music.service.model.Playlist;
@@ -54,6 +55,22 @@ public class PlaylistController {
         return ResponseEntity.ok(responses);
     }
 
+    @GetMapping("/scroll")
+    @Operation(
+            summary = "Листать плейлисты по курсору",
+            description = "Keyset-пагинация: стоимость страницы не зависит от глубины. "
+                    + "Для следующей страницы передайте nextCursor из ответа"
+    )
+    public ResponseEntity<CursorPage<PlaylistResponse>> scrollPlaylists(
+            @Parameter(description = "Курсор из предыдущего ответа")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы")
+            @RequestParam(required = false, defaultValue = "10") int size,
+            @Parameter(description = "Поле для сортировки: id или name")
+            @RequestParam(required = false, defaultValue = "name") String sort) {
+        return ResponseEntity.ok(playlistService.getPlaylistsAfter(cursor, size, sort));
+    }
+
     @GetMapping("/{id}")
     @Operation(
             summary = "Получить плейлист по ID",
@@ -70,6 +70,64 @@ public class TrackController {
         return ResponseEntity.ok(responses);
     }
 
+    @GetMapping("/slice")
+    @Operation(
+            summary = "Получить страницу треков без подсчёта",
+            description = "Те же фильтры, что и у списка треков, но без запроса COUNT: вместо общего числа "
+                    + "возвращается признак следующей страницы. Для списка без фильтров можно запросить "
+                    + "примерное общее число по статистике БД"
+    )
+    public ResponseEntity<SliceResponse<TrackResponse>> getTrackSlice(
+            @Parameter(description = "Фильтр по пользователю")
+            @RequestParam(required = false) String user,
+            @Parameter(description = "Фильтр по названию трека")
+            @RequestParam(required = false) String title,
+            @Parameter(description = "Фильтр по альбому")
+            @RequestParam(required = false) String album,
+            @Parameter(description = "Фильтр по жанру")
+            @RequestParam(required = false) String genre,
+            @Parameter(description = "Фильтр по плейлисту")
+            @RequestParam(required = false) String playlist,
+            @Parameter(description = "Номер страницы")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Размер страницы")
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Вернуть примерное общее число треков")
+            @RequestParam(defaultValue = "false") boolean approximateTotal) {
+        return ResponseEntity.ok(trackService.getTrackSlice(user, album, title, genre, playlist,
+                PageRequest.of(page, size), approximateTotal));
+    }
+
+    @GetMapping("/scroll")
+    @Operation(
+            summary = "Листать треки по курсору",
+            description = "Keyset-пагинация: стоимость страницы не зависит от глубины. "
+                    + "Для следующей страницы передайте nextCursor из ответа"
+    )
+    public ResponseEntity<CursorPage<TrackResponse>> scrollTracks(
+            @Parameter(description = "Курсор из предыдущего ответа")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы")
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Поле для сортировки: id или title")
+            @RequestParam(defaultValue = "id") String sort) {
+        return ResponseEntity.ok(trackService.getTracksAfter(cursor, size, sort));
+    }
+
+    @GetMapping("/search")
+    @Operation(
+            summary = "Поиск треков",
+            description = "Ищет по названию трека, названию альбома и имени исполнителя "
+                    + "с учётом опечаток; лучшие совпадения первыми"
+    )
+    public ResponseEntity<List<TrackResponse>> searchTracks(
+            @Parameter(description = "Поисковый запрос", required = true)
+            @RequestParam("q") String query,
+            @Parameter(description = "Максимальное число результатов")
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(trackService.searchTracks(query, limit));
+    }
+
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Добавить новый трек")
     public ResponseEntity<TrackResponse> addTrack(
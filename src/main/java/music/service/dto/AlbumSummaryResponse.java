@@ -0,0 +1,18 @@
+package music.service.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+public class AlbumSummaryResponse {
+    private Long id;
+    private String title;
+    private String coverImageId;
+    private List<String> artists;
+    private long trackCount;
+    private long totalDuration;
+}
@@ -0,0 +1,19 @@
+package music.service.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class CatalogImportResult {
+    private long rows;
+    private int users;
+    private int albums;
+    private int tracks;
+    private int albumArtists;
+    private int trackArtists;
+    private int playlists;
+    private int playlistTracks;
+    private int playlistUsers;
+    private long elapsedMillis;
+}
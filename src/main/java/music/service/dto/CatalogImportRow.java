@@ -0,0 +1,33 @@
+package music.service.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Строка импорта каталога. {@code type} определяет, какие поля заполнены:
+ * {@code user}, {@code album}, {@code track}, {@code playlist}, {@code album_artist},
+ * {@code track_artist}, {@code playlist_track}, {@code playlist_user}.
+ * Ссылки между строками ({@code album}, {@code user}, {@code track}, {@code playlist})
+ * задаются ключами {@code key} из этого же импорта. Выгрузка каталога пишет
+ * строки в этом же формате.
+ */
+@Getter
+@Setter
+public class CatalogImportRow {
+    private String type;
+    private String key;
+    private String title;
+    private String username;
+    private String email;
+    private String passwordHash;
+    private String role;
+    private Integer duration;
+    private String releaseDate;
+    private String genre;
+    private String mediaFileId;
+    private String coverImageId;
+    private String album;
+    private String user;
+    private String track;
+    private String playlist;
+}
@@ -0,0 +1,21 @@
+package music.service.dto;
+
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Страница keyset-пагинации. {@code nextCursor} передаётся в следующий запрос
+ * и равен {@code null} на последней странице.
+ */
+@Getter
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+    private final boolean hasNext;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
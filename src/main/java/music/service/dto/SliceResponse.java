@@ -0,0 +1,19 @@
+package music.service.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Страница без точного общего числа элементов. {@code approximateTotal}
+ * заполняется только по запросу и берётся из статистики планировщика.
+ */
+@Getter
+@Builder
+public class SliceResponse<T> {
+    private final List<T> content;
+    private final int page;
+    private final int size;
+    private final boolean hasNext;
+    private final Long approximateTotal;
+}
@@ -0,0 +1,28 @@
+package music.service.exception;
+
+import java.io.IOException;
+
+/**
+ * Исключение, которое выбрасывается, когда хранилище медиафайлов временно недоступно:
+ * вызов отклонён ограничителем параллелизма, разомкнутым предохранителем или
+ * превысил допустимое время.
+ */
+public class StorageUnavailableException extends IOException {
+
+    private final boolean retryable;
+
+    /**
+     * Конструктор с сообщением об ошибке.
+     *
+     * @param message   Сообщение, описывающее причину недоступности.
+     * @param retryable Имеет ли смысл немедленно повторить вызов.
+     */
+    public StorageUnavailableException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -7,11 +7,16 @@ import javax.validation.constraints.Size;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "albums")
+@BatchSize(size = 50)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "music.album")
+@Table(name = "albums", indexes = @Index(name = "idx_albums_title_id", columnList = "title, id"))
 public class Album {
 
     @Id
@@ -24,9 +29,12 @@ public class Album {
 
     @OneToMany(mappedBy = "album",
             cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+    @BatchSize(size = 50)
     private Set<Track> tracks = new LinkedHashSet<>();
 
     @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.PERSIST}, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "music.album.users")
     @JoinTable(name = "users_albums",
             joinColumns = @JoinColumn(name = "album_id"),
             inverseJoinColumns = @JoinColumn(name = "user_id"))
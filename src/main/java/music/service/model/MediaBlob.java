@@ -0,0 +1,38 @@
+package music.service.model;
+
+import javax.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "media_blobs")
+public class MediaBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "content_hash", nullable = false, unique = true, length = 64)
+    private String contentHash;
+
+    @Column(name = "media_file_id", nullable = false, unique = true)
+    private String mediaFileId;
+
+    @Column(name = "size")
+    private Long size;
+
+    @Column(name = "reference_count", nullable = false)
+    private int referenceCount;
+
+    public MediaBlob() {}
+
+    public MediaBlob(String contentHash, String mediaFileId, Long size) {
+        this.contentHash = contentHash;
+        this.mediaFileId = mediaFileId;
+        this.size = size;
+        this.referenceCount = 1;
+    }
+}
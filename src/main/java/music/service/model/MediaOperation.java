@@ -0,0 +1,54 @@
+package music.service.model;
+
+import java.time.Instant;
+import javax.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "media_outbox", indexes = @Index(name = "idx_media_outbox_next_attempt", columnList = "next_attempt_at"))
+public class MediaOperation {
+
+    public enum Type {
+        DELETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 16)
+    private Type type;
+
+    @Column(name = "media_file_id", nullable = false)
+    private String mediaFileId;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public MediaOperation() {}
+
+    public MediaOperation(Type type, String mediaFileId) {
+        this.type = type;
+        this.mediaFileId = mediaFileId;
+        this.createdAt = Instant.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public static MediaOperation delete(String mediaFileId) {
+        return new MediaOperation(Type.DELETE, mediaFileId);
+    }
+}
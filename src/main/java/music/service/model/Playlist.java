@@ -5,11 +5,15 @@ import java.util.Set;
 import javax.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "playlists")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "music.playlist")
+@Table(name = "playlists", indexes = @Index(name = "idx_playlists_name_id", columnList = "name, id"))
 public class Playlist {
 
     @Id
@@ -21,12 +25,16 @@ public class Playlist {
     private String name;
 
     @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @OrderBy("id")
     @JoinTable(name = "tracks_playlists",
             joinColumns = @JoinColumn(name = "playlist_id"),
             inverseJoinColumns = @JoinColumn(name = "track_id"))
     private Set<Track> tracks = new LinkedHashSet<>();
 
     @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "music.playlist.users")
     @JoinTable(name = "users_playlists",
             joinColumns = @JoinColumn(name = "playlist_id"),
             inverseJoinColumns = @JoinColumn(name = "user_id"))
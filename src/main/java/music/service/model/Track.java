@@ -6,12 +6,13 @@ import java.util.Set;
 import javax.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "tracks")
+@Table(name = "tracks", indexes = @Index(name = "idx_tracks_title_id", columnList = "title, id"))
 public class Track {
 
     @Id
@@ -40,12 +41,14 @@ public class Track {
     private String mediaFileId;
 
     @ManyToMany(cascade = CascadeType.MERGE, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @JoinTable(name = "tracks_playlists",
             joinColumns = @JoinColumn(name = "track_id"),
             inverseJoinColumns = @JoinColumn(name = "playlist_id"))
     private Set<Playlist> playlists = new LinkedHashSet<>();
 
     @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.PERSIST}, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @JoinTable(name = "users_tracks",
             joinColumns = @JoinColumn(name = "track_id"),
             inverseJoinColumns = @JoinColumn(name = "user_id"))
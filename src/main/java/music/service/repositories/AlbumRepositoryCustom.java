@@ -0,0 +1,28 @@
+package music.service.repositories;
+
+import java.util.List;
+import music.service.dto.AlbumSummaryResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface AlbumRepositoryCustom {
+
+    /**
+     * Страница кратких описаний альбомов (исполнители, число треков и общая
+     * длительность) одним SQL-запросом, без загрузки сущностей альбомов и треков.
+     * Фильтры со значением {@code null} не применяются.
+     */
+    Page<AlbumSummaryResponse> findAlbumSummaries(String username, String title, Pageable pageable);
+
+    /**
+     * Страница кратких описаний после строки с ключом {@code (value, id)} в порядке
+     * {@code sort}; стоимость не зависит от глубины страницы.
+     */
+    List<AlbumSummaryResponse> findAlbumSummariesAfter(String sort, String value, long id, int limit);
+
+    /**
+     * Поиск альбомов по названию и имени исполнителя на {@code pg_trgm},
+     * лучшие совпадения первыми.
+     */
+    List<AlbumSummaryResponse> searchAlbumSummaries(String query, int limit);
+}
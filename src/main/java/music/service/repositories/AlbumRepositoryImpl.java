@@ -0,0 +1,150 @@
+package music.service.repositories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import music.service.dto.AlbumSummaryResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+public class AlbumRepositoryImpl implements AlbumRepositoryCustom {
+
+    // Разделитель имён исполнителей, который не встречается в именах пользователей
+    private static final String ARTIST_SEPARATOR = "\u001F";
+
+    private static final String SUMMARY_SELECT = "SELECT a.id, a.title, a.cover_image_id, "
+            + "(SELECT string_agg(u.username, '" + ARTIST_SEPARATOR + "' ORDER BY u.username) "
+            + "FROM users_albums ua JOIN users u ON u.id = ua.user_id "
+            + "WHERE ua.album_id = a.id) AS artists, "
+            + "(SELECT COUNT(*) FROM tracks t WHERE t.album_id = a.id) AS track_count, "
+            + "(SELECT COALESCE(SUM(t.duration), 0) FROM tracks t WHERE t.album_id = a.id) AS total_duration "
+            + "FROM albums a";
+
+    private static final String USERNAME_FILTER = "EXISTS (SELECT 1 FROM users_albums ua "
+            + "JOIN users u ON u.id = ua.user_id "
+            + "WHERE ua.album_id = a.id AND u.username = :username)";
+
+    private static final String SEARCH_CANDIDATES = "WITH candidates AS ("
+            + "SELECT a.id FROM albums a WHERE :query <% a.title OR a.title ILIKE :pattern "
+            + "UNION SELECT ua.album_id FROM users_albums ua JOIN users u ON u.id = ua.user_id "
+            + "WHERE :query <% u.username OR u.username ILIKE :pattern) ";
+
+    private static final String SEARCH_ORDER = " JOIN candidates c ON c.id = a.id "
+            + "ORDER BY GREATEST(word_similarity(:query, a.title), "
+            + "COALESCE((SELECT MAX(word_similarity(:query, u.username)) FROM users_albums ua "
+            + "JOIN users u ON u.id = ua.user_id WHERE ua.album_id = a.id), 0) * 0.6) DESC, a.id";
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "a.id",
+            "title", "a.title",
+            "trackCount", "track_count",
+            "totalDuration", "total_duration");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<AlbumSummaryResponse> findAlbumSummaries(String username, String title, Pageable pageable) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<String> conditions = new ArrayList<>();
+        if (username != null) {
+            conditions.add(USERNAME_FILTER);
+            parameters.put("username", username);
+        }
+        if (title != null) {
+            conditions.add("a.title = :title");
+            parameters.put("title", title);
+        }
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+
+        Query query = entityManager.createNativeQuery(SUMMARY_SELECT + where + orderBy(pageable.getSort()));
+        parameters.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        List<AlbumSummaryResponse> content = rows.stream()
+                .map(AlbumRepositoryImpl::toSummary)
+                .collect(Collectors.toList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Query count = entityManager.createNativeQuery("SELECT COUNT(*) FROM albums a" + where);
+            parameters.forEach(count::setParameter);
+            return ((Number) count.getSingleResult()).longValue();
+        });
+    }
+
+    @Override
+    public List<AlbumSummaryResponse> findAlbumSummariesAfter(String sort, String value, long id, int limit) {
+        Query query;
+        if ("title".equals(sort)) {
+            query = entityManager.createNativeQuery(SUMMARY_SELECT
+                            + " WHERE (a.title, a.id) > (:title, :id) ORDER BY a.title, a.id")
+                    .setParameter("title", value);
+        } else if ("id".equals(sort)) {
+            query = entityManager.createNativeQuery(SUMMARY_SELECT + " WHERE a.id > :id ORDER BY a.id");
+        } else {
+            throw new IllegalArgumentException("Unsupported album keyset sort: " + sort);
+        }
+        query.setParameter("id", id).setMaxResults(limit);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(AlbumRepositoryImpl::toSummary)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AlbumSummaryResponse> searchAlbumSummaries(String query, int limit) {
+        Query search = entityManager.createNativeQuery(SEARCH_CANDIDATES + SUMMARY_SELECT + SEARCH_ORDER)
+                .setParameter("query", query)
+                .setParameter("pattern", TrackSpecifications.containsPattern(query))
+                .setMaxResults(limit);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = search.getResultList();
+        return rows.stream()
+                .map(AlbumRepositoryImpl::toSummary)
+                .collect(Collectors.toList());
+    }
+
+    private static String orderBy(Sort sort) {
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("Unsupported album sort property: " + order.getProperty());
+            }
+            orders.add(column + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        // id в конце делает порядок страниц детерминированным
+        if (sort.getOrderFor("id") == null) {
+            orders.add("a.id ASC");
+        }
+        return " ORDER BY " + String.join(", ", orders);
+    }
+
+    private static AlbumSummaryResponse toSummary(Object[] row) {
+        String artists = (String) row[3];
+        return AlbumSummaryResponse.builder()
+                .id(((Number) row[0]).longValue())
+                .title((String) row[1])
+                .coverImageId((String) row[2])
+                .artists(artists == null ? List.of() : Arrays.asList(artists.split(ARTIST_SEPARATOR)))
+                .trackCount(((Number) row[4]).longValue())
+                .totalDuration(((Number) row[5]).longValue())
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package music.service.repositories;
+
+import java.util.Optional;
+import music.service.model.MediaBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, Long> {
+
+    Optional<MediaBlob> findByContentHash(String contentHash);
+
+    Optional<MediaBlob> findByMediaFileId(String mediaFileId);
+
+    // Счётчик меняется одним UPDATE: строка блокируется на время изменения и параллельные
+    // загрузки и удаления не теряют обновлений
+    @Modifying
+    @Query("UPDATE MediaBlob b SET b.referenceCount = b.referenceCount + 1 WHERE b.contentHash = :contentHash")
+    int incrementReferences(@Param("contentHash") String contentHash);
+
+    // Параллельная вставка того же содержимого ждёт коммита первой и ничего не вставляет,
+    // поэтому ошибка уникальности не прерывает транзакцию вызывающего кода
+    @Modifying
+    @Query(value = "INSERT INTO media_blobs (id, content_hash, media_file_id, size, reference_count) "
+            + "VALUES (nextval('hibernate_sequence'), :contentHash, :mediaFileId, :size, 1) "
+            + "ON CONFLICT (content_hash) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("contentHash") String contentHash,
+                       @Param("mediaFileId") String mediaFileId,
+                       @Param("size") Long size);
+
+    @Modifying
+    @Query("UPDATE MediaBlob b SET b.referenceCount = b.referenceCount - 1 "
+            + "WHERE b.mediaFileId = :mediaFileId AND b.referenceCount > 1")
+    int decrementSharedReferences(@Param("mediaFileId") String mediaFileId);
+
+    @Modifying
+    @Query("DELETE FROM MediaBlob b WHERE b.mediaFileId = :mediaFileId AND b.referenceCount <= 1")
+    int deleteLastReference(@Param("mediaFileId") String mediaFileId);
+}
@@ -0,0 +1,14 @@
+package music.service.repositories;
+
+import java.time.Instant;
+import java.util.List;
+import music.service.model.MediaOperation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MediaOperationRepository extends JpaRepository<MediaOperation, Long> {
+
+    List<MediaOperation> findByNextAttemptAtLessThanEqualOrderByIdAsc(Instant now, Pageable pageable);
+}
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
 
@@ -32,4 +34,16 @@ public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
             @Param("name") String name,
             Pageable pageable
     );
+
+    @Query(value = "SELECT * FROM playlists p WHERE (p.name, p.id) > (:name, :id) "
+            + "ORDER BY p.name, p.id LIMIT :limit", nativeQuery = true)
+    List<Playlist> findPageAfterName(@Param("name") String name,
+                                     @Param("id") long id,
+                                     @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM playlists p WHERE p.id > :id ORDER BY p.id LIMIT :limit", nativeQuery = true)
+    List<Playlist> findPageAfterId(@Param("id") long id, @Param("limit") int limit);
+
+    @Query("SELECT t.mediaFileId FROM Playlist p JOIN p.tracks t WHERE p.id = :playlistId ORDER BY t.id")
+    List<String> findMediaFileIdsByPlaylistId(@Param("playlistId") Long playlistId);
 }
\ No newline at end of file
@@ -1,8 +1,6 @@
 package music.service.repositories;
 
 import music.service.model.Track;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -14,23 +12,7 @@ import java.util.Optional;
 
 @Repository
 public interface TrackRepository extends JpaRepository<Track, Long>,
-        JpaSpecificationExecutor<Track> {
-
-    @Query("SELECT DISTINCT t FROM Track t " +
-            "LEFT JOIN t.album a " +
-            "LEFT JOIN t.playlists p " +
-            "LEFT JOIN t.users u " +
-            "WHERE (:username IS NULL OR u.username = :username) " +
-            "AND (:albumTitle IS NULL OR a.title = :albumTitle) " +
-            "AND (:title IS NULL OR t.title LIKE %:title%) " +
-            "AND (:genre IS NULL OR t.genre = :genre) " +
-            "AND (:playlistName IS NULL OR p.name = :playlistName)")
-    Page<Track> findTracks(@Param("username") String username,
-                           @Param("albumTitle") String albumTitle,
-                           @Param("title") String title,
-                           @Param("genre") String genre,
-                           @Param("playlistName") String playlistName,
-                           Pageable pageable);
+        JpaSpecificationExecutor<Track>, TrackRepositoryCustom {
 
     @Query("SELECT t FROM Track t JOIN FETCH t.album WHERE t.id = :trackId")
     Optional<Track> findTrackWithAlbumById(@Param("trackId") Long trackId);
@@ -38,4 +20,45 @@ public interface TrackRepository extends JpaRepository<Track, Long>,
     @Query("SELECT t FROM Track t JOIN t.users a WHERE a.id = :userId")
     List<Track> findTracksByUserId(@Param("userId") Long userId);
 
+    @Query(value = "SELECT * FROM tracks t WHERE (t.title, t.id) > (:title, :id) "
+            + "ORDER BY t.title, t.id LIMIT :limit", nativeQuery = true)
+    List<Track> findPageAfterTitle(@Param("title") String title,
+                                   @Param("id") long id,
+                                   @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM tracks t WHERE t.id > :id ORDER BY t.id LIMIT :limit", nativeQuery = true)
+    List<Track> findPageAfterId(@Param("id") long id, @Param("limit") int limit);
+
+    /**
+     * Поиск треков по названию, названию альбома и имени исполнителя на
+     * {@code pg_trgm}. Кандидаты отбираются по GIN-индексам каждой таблицы
+     * отдельно, затем ранжируются по лучшему совпадению: название трека весит
+     * больше альбома, альбом больше исполнителя.
+     */
+    @Query(value = "WITH candidates AS ("
+            + "SELECT t.id FROM tracks t WHERE :query <% t.title OR t.title ILIKE :pattern "
+            + "UNION SELECT t.id FROM tracks t JOIN albums a ON a.id = t.album_id "
+            + "WHERE :query <% a.title OR a.title ILIKE :pattern "
+            + "UNION SELECT ut.track_id FROM users_tracks ut JOIN users u ON u.id = ut.user_id "
+            + "WHERE :query <% u.username OR u.username ILIKE :pattern) "
+            + "SELECT t.id AS id, GREATEST("
+            + "word_similarity(:query, t.title), "
+            + "COALESCE(word_similarity(:query, a.title), 0) * 0.8, "
+            + "COALESCE((SELECT MAX(word_similarity(:query, u.username)) FROM users_tracks ut "
+            + "JOIN users u ON u.id = ut.user_id WHERE ut.track_id = t.id), 0) * 0.6) AS score "
+            + "FROM candidates c JOIN tracks t ON t.id = c.id "
+            + "LEFT JOIN albums a ON a.id = t.album_id "
+            + "ORDER BY score DESC, t.id "
+            + "LIMIT :limit",
+            nativeQuery = true)
+    List<SearchHit> searchTracks(@Param("query") String query,
+                                 @Param("pattern") String pattern,
+                                 @Param("limit") int limit);
+
+    interface SearchHit {
+        Long getId();
+
+        Double getScore();
+    }
+
 }
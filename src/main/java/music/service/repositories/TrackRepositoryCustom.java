@@ -0,0 +1,22 @@
+package music.service.repositories;
+
+import java.util.OptionalLong;
+import music.service.model.Track;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface TrackRepositoryCustom {
+
+    /**
+     * Страница без запроса {@code COUNT}: читается на одну строку больше размера
+     * страницы, и лишняя строка только показывает, есть ли следующая.
+     */
+    Slice<Track> findSlice(Specification<Track> specification, Pageable pageable);
+
+    /**
+     * Оценка числа строк в {@code tracks} по статистике планировщика PostgreSQL;
+     * пусто, если таблица ещё не анализировалась.
+     */
+    OptionalLong estimateTotal();
+}
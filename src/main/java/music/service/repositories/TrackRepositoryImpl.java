@@ -0,0 +1,55 @@
+package music.service.repositories;
+
+import java.util.List;
+import java.util.OptionalLong;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import music.service.model.Track;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+public class TrackRepositoryImpl implements TrackRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<Track> findSlice(Specification<Track> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Track> query = cb.createQuery(Track.class);
+        Root<Track> root = query.from(Track.class);
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        // Без явной сортировки порядок строк между страницами не определён
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : Sort.by("id");
+        query.select(root).orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        List<Track> rows = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    @Override
+    public OptionalLong estimateTotal() {
+        List<?> estimate = entityManager.createNativeQuery(
+                        "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = to_regclass('tracks')")
+                .getResultList();
+        if (estimate.isEmpty() || ((Number) estimate.get(0)).longValue() < 0) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(((Number) estimate.get(0)).longValue());
+    }
+}
@@ -0,0 +1,90 @@
+package music.service.repositories;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import music.service.model.Playlist;
+import music.service.model.Track;
+import music.service.model.User;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Условия фильтрации треков для {@link TrackRepository}. В запрос попадают только
+ * заданные фильтры: список без фильтров или по жанру читает одну таблицу
+ * {@code tracks}, а фильтры по пользователю и плейлисту проверяются через
+ * {@code EXISTS}, без соединений, размножающих строки, и без {@code DISTINCT}.
+ */
+public final class TrackSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private TrackSpecifications() {
+    }
+
+    public static Specification<Track> filter(String username, String albumTitle, String title,
+                                              String genre, String playlistName) {
+        Specification<Track> specification = Specification.where(null);
+        if (genre != null) {
+            specification = specification.and(hasGenre(genre));
+        }
+        if (title != null) {
+            specification = specification.and(titleContains(title));
+        }
+        if (albumTitle != null) {
+            specification = specification.and(inAlbum(albumTitle));
+        }
+        if (username != null) {
+            specification = specification.and(ownedBy(username));
+        }
+        if (playlistName != null) {
+            specification = specification.and(inPlaylist(playlistName));
+        }
+        return specification;
+    }
+
+    public static Specification<Track> hasGenre(String genre) {
+        return (root, query, cb) -> cb.equal(root.get("genre"), genre);
+    }
+
+    public static Specification<Track> titleContains(String title) {
+        String pattern = containsPattern(title);
+        return (root, query, cb) -> cb.like(root.get("title"), pattern, LIKE_ESCAPE);
+    }
+
+    /**
+     * Шаблон LIKE «содержит значение», в котором {@code %} и {@code _} из самого
+     * значения экранированы обратной косой чертой.
+     */
+    public static String containsPattern(String value) {
+        return "%" + value
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    public static Specification<Track> inAlbum(String albumTitle) {
+        return (root, query, cb) -> cb.equal(root.join("album").get("title"), albumTitle);
+    }
+
+    public static Specification<Track> ownedBy(String username) {
+        return (root, query, cb) -> {
+            Subquery<Long> owners = query.subquery(Long.class);
+            Root<User> user = owners.from(User.class);
+            Join<User, Track> track = user.join("tracks");
+            owners.select(track.get("id"))
+                    .where(cb.equal(user.get("username"), username), cb.equal(track, root));
+            return cb.exists(owners);
+        };
+    }
+
+    public static Specification<Track> inPlaylist(String playlistName) {
+        return (root, query, cb) -> {
+            Subquery<Long> playlists = query.subquery(Long.class);
+            Root<Playlist> playlist = playlists.from(Playlist.class);
+            Join<Playlist, Track> track = playlist.join("tracks");
+            playlists.select(track.get("id"))
+                    .where(cb.equal(playlist.get("name"), playlistName), cb.equal(track, root));
+            return cb.exists(playlists);
+        };
+    }
+}
@@ -2,8 +2,10 @@ package music.service.repositories;
 
 import java.util.List;
 import java.util.Optional;
+import javax.persistence.QueryHint;
 import music.service.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.validation.constraints.Email;
@@ -15,6 +17,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByUsername(@NotBlank(message = "Username is required") String username);
 
+    // Проверяется на каждом запросе с JWT: id берётся из кэша запросов, сам пользователь — из кэша сущностей
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "music.user-by-username")
+    })
     Optional<User> findByUsername(String username);
 
     boolean existsByEmail(@NotBlank(message = "Email is required")
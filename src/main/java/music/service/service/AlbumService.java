@@ -1,10 +1,13 @@
 package music.service.service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.transaction.Transactional;
 import music.service.dto.*;
 import music.service.exception.ResourceNotFoundException;
+import music.service.exception.ValidationException;
 import music.service.model.Album;
 import music.service.model.User;
 import music.service.repositories.AlbumRepository;
@@ -23,6 +26,9 @@ import org.springframework.web.multipart.MultipartFile;
 public class AlbumService {
     private static final Logger logger = LoggerFactory.getLogger(
             AlbumService.class);
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final Set<String> SUMMARY_SORTS = Set.of("id", "title", "trackCount", "totalDuration");
     private final AlbumRepository albumRepository;
     private final UserRepository userRepository;
     private final CacheService cacheService;
@@ -39,7 +45,7 @@ public class AlbumService {
         this.mediaService = mediaService;
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     public Page<Album> getAllAlbums(String user, String title, int page, int size, String sortBy) {
         String cacheKey = buildAlbumsCacheKey(user, title, page, size, sortBy);
         logger.debug("Generated cache key: {}", cacheKey);
@@ -59,6 +65,60 @@ public class AlbumService {
         return albums;
     }
 
+    /**
+     * Список альбомов для каталога: краткие описания одним запросом, без треков.
+     * Полный список треков отдаётся только в карточке альбома.
+     */
+    @ReadOnlyTransactional
+    public Page<AlbumSummaryResponse> getAlbumSummaries(String user, String title, int page, int size,
+                                                        String sortBy) {
+        if (!SUMMARY_SORTS.contains(sortBy)) {
+            throw new ValidationException("Неподдерживаемая сортировка: " + sortBy);
+        }
+        String cacheKey = buildAlbumsCacheKey(user, title, page, size, sortBy) + "_summary";
+
+        if (cacheService.containsKey(cacheKey)) {
+            logger.debug("Cache hit for key: {}", cacheKey);
+            return (Page<AlbumSummaryResponse>) cacheService.get(cacheKey);
+        }
+
+        Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy));
+        Page<AlbumSummaryResponse> summaries = albumRepository.findAlbumSummaries(user, title, pageable);
+        cacheService.put(cacheKey, summaries);
+        return summaries;
+    }
+
+    /**
+     * Страница кратких описаний альбомов после курсора, отсортированная
+     * по {@code title} или {@code id}.
+     */
+    @ReadOnlyTransactional
+    public CursorPage<AlbumSummaryResponse> getAlbumSummariesAfter(String cursor, int size, String sortBy) {
+        if (!"title".equals(sortBy) && !"id".equals(sortBy)) {
+            throw new ValidationException("Неподдерживаемая сортировка: " + sortBy);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor, sortBy);
+
+        List<AlbumSummaryResponse> rows = albumRepository.findAlbumSummariesAfter(
+                sortBy, after.value(), after.id(), pageSize + 1);
+        return KeysetCursor.page(rows, pageSize, sortBy,
+                "title".equals(sortBy) ? AlbumSummaryResponse::getTitle : album -> "",
+                AlbumSummaryResponse::getId, album -> album);
+    }
+
+    /**
+     * Поиск альбомов по названию и исполнителю, лучшие совпадения первыми.
+     */
+    @ReadOnlyTransactional
+    public List<AlbumSummaryResponse> searchAlbums(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        return albumRepository.searchAlbumSummaries(query.trim(),
+                Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
+
     Page<Album> fetchAlbumsFromDatabase(String user,
                                         String title,
                                         Pageable pageable) {
@@ -109,7 +169,7 @@ public class AlbumService {
 
 
 
-    @Transactional
+    @ReadOnlyTransactional
     public Album getAlbumById(Long id) {
         String cacheKey = "album_" + id;
 
@@ -197,8 +257,12 @@ public class AlbumService {
             }
         }
         if (coverFile != null && !coverFile.isEmpty()) {
+            String previousCoverImageId = album.getCoverImageId();
             String newCoverImageId = mediaService.uploadMedia(coverFile);
             album.setCoverImageId(newCoverImageId);
+            if (previousCoverImageId != null && !previousCoverImageId.equals(newCoverImageId)) {
+                mediaService.releaseMedia(previousCoverImageId);
+            }
         }
         Album savedAlbum = albumRepository.save(album);
         clearCacheForAlbum(albumId);
@@ -215,13 +279,20 @@ public class AlbumService {
             album.getUsers().remove(user);
         }
 
-        if (album.getCoverImageId() != null) {
-            mediaService.deleteFile(album.getCoverImageId());
-        }
+        mediaService.releaseMediaBatch(collectMediaFileIds(album));
         albumRepository.deleteById(albumId);
         clearCacheForAlbum(albumId);
     }
 
+    public List<String> collectMediaFileIds(Album album) {
+        List<String> mediaFileIds = new ArrayList<>();
+        album.getTracks().forEach(track -> mediaFileIds.add(track.getMediaFileId()));
+        if (album.getCoverImageId() != null) {
+            mediaFileIds.add(album.getCoverImageId());
+        }
+        return mediaFileIds;
+    }
+
     public void clearCacheForAlbum(Long albumId) {
         cacheService.evict("album_" + albumId);
         cacheService.evictByPattern("album_*");
@@ -0,0 +1,175 @@
+package music.service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import javax.persistence.EntityManager;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Потоковая выгрузка каталога в NDJSON: пользователи, альбомы, треки, плейлисты и связи
+ * между ними. Строки пишутся в формате {@link CatalogImportService}, ключами служат id,
+ * поэтому выгрузку можно загрузить обратно. Пароли и роли не выгружаются: при импорте
+ * новые пользователи получают роль USER и заблокированный пароль, существующие
+ * связываются по email.
+ *
+ * <p>Каждая таблица читается одним forward-only курсором с ограниченным fetch size,
+ * строки пишутся сразу в выходной поток, а контекст персистентности периодически
+ * очищается, поэтому память не растёт с размером каталога.
+ */
+@Service
+public class CatalogExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogExportService.class);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final int clearEvery;
+
+    public CatalogExportService(EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${catalog.export.fetch-size:1000}") int fetchSize,
+                                @Value("${catalog.export.clear-every:1000}") int clearEvery) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.clearEvery = clearEvery;
+    }
+
+    /**
+     * Пишет каталог в поток. Вызывается из {@code StreamingResponseBody}, то есть
+     * вне транзакции запроса, поэтому открывает собственную read-only транзакцию:
+     * без неё драйвер PostgreSQL игнорирует fetch size и читает результат целиком.
+     */
+    public long export(OutputStream out) {
+        long started = System.currentTimeMillis();
+        Long rows = transactionTemplate.execute(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                long written = 0;
+                written += scroll(session, json, "select u.id, u.username, u.email from User u order by u.id",
+                        (row, generator) -> {
+                            generator.writeStringField("type", "user");
+                            writeKey(generator, "key", row[0]);
+                            generator.writeStringField("username", (String) row[1]);
+                            generator.writeStringField("email", (String) row[2]);
+                        });
+                written += scroll(session, json, "select a.id, a.title, a.coverImageId from Album a order by a.id",
+                        (row, generator) -> {
+                            generator.writeStringField("type", "album");
+                            writeKey(generator, "key", row[0]);
+                            generator.writeStringField("title", (String) row[1]);
+                            writeNullable(generator, "coverImageId", row[2]);
+                        });
+                written += scroll(session, json, "select t.id, t.title, t.duration, t.releaseDate, t.genre, "
+                                + "t.mediaFileId, t.album.id from Track t order by t.id",
+                        (row, generator) -> {
+                            generator.writeStringField("type", "track");
+                            writeKey(generator, "key", row[0]);
+                            generator.writeStringField("title", (String) row[1]);
+                            generator.writeNumberField("duration", (Integer) row[2]);
+                            writeNullable(generator, "releaseDate", row[3]);
+                            writeNullable(generator, "genre", row[4]);
+                            generator.writeStringField("mediaFileId", (String) row[5]);
+                            writeKey(generator, "album", row[6]);
+                        });
+                written += scroll(session, json, "select p.id, p.name from Playlist p order by p.id",
+                        (row, generator) -> {
+                            generator.writeStringField("type", "playlist");
+                            writeKey(generator, "key", row[0]);
+                            generator.writeStringField("title", (String) row[1]);
+                        });
+                written += scroll(session, json, "select a.id, u.id from Album a join a.users u "
+                                + "order by a.id, u.id",
+                        (row, generator) -> writeLink(generator, "album_artist", "album", row[0], "user", row[1]));
+                written += scroll(session, json, "select t.id, u.id from Track t join t.users u "
+                                + "order by t.id, u.id",
+                        (row, generator) -> writeLink(generator, "track_artist", "track", row[0], "user", row[1]));
+                written += scroll(session, json, "select p.id, t.id from Playlist p join p.tracks t "
+                                + "order by p.id, t.id",
+                        (row, generator) -> writeLink(generator, "playlist_track", "playlist", row[0], "track", row[1]));
+                written += scroll(session, json, "select p.id, u.id from Playlist p join p.users u "
+                                + "order by p.id, u.id",
+                        (row, generator) -> writeLink(generator, "playlist_user", "playlist", row[0], "user", row[1]));
+                return written;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        logger.info("Exported {} catalog rows in {} ms", rows, System.currentTimeMillis() - started);
+        return rows == null ? 0 : rows;
+    }
+
+    private long scroll(Session session, JsonGenerator json, String query, RowWriter writer) throws IOException {
+        long rows = 0;
+        try (ScrollableResults results = session.createQuery(query)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheable(false)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                json.writeStartObject();
+                writer.write(results.get(), json);
+                json.writeEndObject();
+                json.writeRaw('\n');
+                if (++rows % clearEvery == 0) {
+                    json.flush();
+                    session.clear();
+                }
+            }
+        }
+        json.flush();
+        return rows;
+    }
+
+    private static void writeLink(JsonGenerator json, String type,
+                                  String leftField, Object left, String rightField, Object right) throws IOException {
+        json.writeStringField("type", type);
+        writeKey(json, leftField, left);
+        writeKey(json, rightField, right);
+    }
+
+    /**
+     * Ключом строки служит её id: ссылки в импорте — строки, а не числа.
+     */
+    private static void writeKey(JsonGenerator json, String field, Object id) throws IOException {
+        if (id == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeStringField(field, id.toString());
+        }
+    }
+
+    private static void writeNullable(JsonGenerator json, String field, Object value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else if (value instanceof LocalDate date) {
+            json.writeStringField(field, date.toString());
+        } else {
+            json.writeStringField(field, value.toString());
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(Object[] row, JsonGenerator json) throws IOException;
+    }
+}
@@ -0,0 +1,583 @@
+package music.service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import javax.transaction.Transactional;
+import music.service.dto.CatalogImportResult;
+import music.service.dto.CatalogImportRow;
+import music.service.exception.ValidationException;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Массовый импорт каталога лейбла. Строки NDJSON или CSV читаются потоком,
+ * проверяются по одной и через {@code COPY} попадают во временную таблицу,
+ * а пользователи, альбомы, треки, плейлисты и связи между ними переносятся в основные
+ * таблицы несколькими set-based запросами в одной транзакции. Память не зависит
+ * от размера импорта: в ней держится только буфер {@code COPY}.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+
+    private static final int COPY_BUFFER_CHARS = 256 * 1024;
+    private static final Set<String> TYPES = Set.of("user", "album", "track", "playlist",
+            "album_artist", "track_artist", "playlist_track", "playlist_user");
+    // Импорт открыт без аутентификации, поэтому привилегированные роли через него не назначаются
+    private static final Set<String> ROLES = Set.of("USER");
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+    // Пароль, который не совпадёт ни с одним BCrypt-хешем: вход до смены пароля невозможен
+    private static final String LOCKED_PASSWORD = "!";
+
+    private static final String STAGING_TABLE = "CREATE TEMP TABLE catalog_import_rows ("
+            + "line_no BIGINT, type TEXT, key TEXT, title TEXT, username TEXT, email TEXT, password TEXT, "
+            + "role TEXT, duration INT, release_date DATE, genre TEXT, media_file_id TEXT, cover_image_id TEXT, "
+            + "album_key TEXT, user_key TEXT, track_key TEXT, playlist_key TEXT) ON COMMIT DROP";
+    private static final String COPY_ROWS = "COPY catalog_import_rows (line_no, type, key, title, username, "
+            + "email, password, role, duration, release_date, genre, media_file_id, cover_image_id, album_key, "
+            + "user_key, track_key, playlist_key) FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final CacheService cacheService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final String sequenceName;
+
+    public CatalogImportService(DataSource dataSource,
+                                JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                CacheService cacheService,
+                                EntityManagerFactory entityManagerFactory,
+                                @Value("${catalog.import.sequence:hibernate_sequence}") String sequenceName) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.cacheService = cacheService;
+        this.entityManagerFactory = entityManagerFactory;
+        this.sequenceName = sequenceName;
+    }
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    @Transactional
+    public CatalogImportResult importCatalog(InputStream body, Format format) throws IOException {
+        long started = System.currentTimeMillis();
+        jdbcTemplate.execute(STAGING_TABLE);
+
+        long rows;
+        try (RowReader reader = format == Format.CSV ? new CsvRowReader(body) : new NdjsonRowReader(body)) {
+            rows = stage(reader);
+        }
+        jdbcTemplate.execute("ANALYZE catalog_import_rows");
+        checkReferences();
+
+        CatalogImportResult result = merge(rows, started);
+        evictCachesAfterCommit();
+        logger.info("Imported catalog: {} rows, {} users, {} albums, {} tracks in {} ms",
+                rows, result.getUsers(), result.getAlbums(), result.getTracks(), result.getElapsedMillis());
+        return result;
+    }
+
+    /**
+     * Запись шла мимо Hibernate, поэтому кэши о ней не знают. Сбрасывать их до коммита
+     * нельзя: параллельный запрос успеет снова заполнить кэш ещё не изменёнными данными.
+     */
+    private void evictCachesAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictCaches();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictCaches();
+            }
+        });
+    }
+
+    private void evictCaches() {
+        cacheService.clear();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private long stage(RowReader reader) throws IOException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        CopyIn copy = null;
+        try {
+            copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_ROWS);
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+            long rows = 0;
+            CatalogImportRow row;
+            while ((row = reader.next()) != null) {
+                rows++;
+                validate(row, reader.lineNumber());
+                appendCopyLine(buffer, reader.lineNumber(), row);
+                if (buffer.length() >= COPY_BUFFER_CHARS) {
+                    writeToCopy(copy, buffer);
+                }
+            }
+            writeToCopy(copy, buffer);
+            copy.endCopy();
+            return rows;
+        } catch (SQLException e) {
+            throw new IOException("Could not stream catalog rows to the database", e);
+        } finally {
+            cancelQuietly(copy);
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    static void validate(CatalogImportRow row, long line) {
+        String type = row.getType();
+        if (type == null || !TYPES.contains(type)) {
+            throw invalid(line, "неизвестный тип строки " + type);
+        }
+        switch (type) {
+            case "user":
+                require(line, "key", row.getKey());
+                require(line, "username", row.getUsername());
+                require(line, "email", row.getEmail());
+                if (row.getRole() != null && !ROLES.contains(row.getRole())) {
+                    throw invalid(line, "недопустимая роль " + row.getRole());
+                }
+                if (row.getPasswordHash() != null && !BCRYPT_HASH.matcher(row.getPasswordHash()).matches()) {
+                    throw invalid(line, "passwordHash должен быть BCrypt-хешем");
+                }
+                break;
+            case "album":
+                require(line, "key", row.getKey());
+                require(line, "title", row.getTitle());
+                break;
+            case "track":
+                require(line, "key", row.getKey());
+                require(line, "title", row.getTitle());
+                maxLength(line, "title", row.getTitle(), 100);
+                require(line, "mediaFileId", row.getMediaFileId());
+                if (row.getDuration() == null || row.getDuration() < 0) {
+                    throw invalid(line, "duration должна быть неотрицательным числом");
+                }
+                if (row.getReleaseDate() != null) {
+                    try {
+                        LocalDate.parse(row.getReleaseDate());
+                    } catch (DateTimeParseException e) {
+                        throw invalid(line, "releaseDate должна быть датой в формате ГГГГ-ММ-ДД");
+                    }
+                }
+                break;
+            case "playlist":
+                require(line, "key", row.getKey());
+                require(line, "title", row.getTitle());
+                maxLength(line, "title", row.getTitle(), 100);
+                break;
+            case "album_artist":
+                require(line, "album", row.getAlbum());
+                require(line, "user", row.getUser());
+                break;
+            case "track_artist":
+                require(line, "track", row.getTrack());
+                require(line, "user", row.getUser());
+                break;
+            case "playlist_track":
+                require(line, "playlist", row.getPlaylist());
+                require(line, "track", row.getTrack());
+                break;
+            default:
+                require(line, "playlist", row.getPlaylist());
+                require(line, "user", row.getUser());
+        }
+    }
+
+    /**
+     * Проверяет ключи после загрузки во временную таблицу: повторы ключей
+     * и ссылки на строки, которых нет в импорте.
+     */
+    private void checkReferences() {
+        List<Map<String, Object>> problems = jdbcTemplate.queryForList(
+                "(SELECT MAX(line_no) AS line_no, 'повторяется ключ ' || type || ' ' || key AS problem "
+                        + "FROM catalog_import_rows WHERE key IS NOT NULL GROUP BY type, key HAVING COUNT(*) > 1) "
+                        + "UNION ALL (SELECT r.line_no, 'нет альбома ' || r.album_key FROM catalog_import_rows r "
+                        + "WHERE r.type IN ('track', 'album_artist') AND r.album_key IS NOT NULL "
+                        + "AND NOT EXISTS (SELECT 1 FROM catalog_import_rows a "
+                        + "WHERE a.type = 'album' AND a.key = r.album_key)) "
+                        + "UNION ALL (SELECT r.line_no, 'нет пользователя ' || r.user_key FROM catalog_import_rows r "
+                        + "WHERE r.type IN ('album_artist', 'track_artist', 'playlist_user') "
+                        + "AND NOT EXISTS (SELECT 1 FROM catalog_import_rows u "
+                        + "WHERE u.type = 'user' AND u.key = r.user_key)) "
+                        + "UNION ALL (SELECT r.line_no, 'нет трека ' || r.track_key FROM catalog_import_rows r "
+                        + "WHERE r.type IN ('track_artist', 'playlist_track') "
+                        + "AND NOT EXISTS (SELECT 1 FROM catalog_import_rows t "
+                        + "WHERE t.type = 'track' AND t.key = r.track_key)) "
+                        + "UNION ALL (SELECT r.line_no, 'нет плейлиста ' || r.playlist_key FROM catalog_import_rows r "
+                        + "WHERE r.type IN ('playlist_track', 'playlist_user') "
+                        + "AND NOT EXISTS (SELECT 1 FROM catalog_import_rows p "
+                        + "WHERE p.type = 'playlist' AND p.key = r.playlist_key)) "
+                        + "ORDER BY line_no LIMIT 1");
+        if (!problems.isEmpty()) {
+            Map<String, Object> first = problems.get(0);
+            throw invalid(((Number) first.get("line_no")).longValue(), (String) first.get("problem"));
+        }
+    }
+
+    private CatalogImportResult merge(long rows, long started) {
+        String nextId = "nextval('" + sequenceName + "')";
+
+        // Пользователь с уже существующим email не создаётся заново, а связывается по email
+        int users = jdbcTemplate.update("INSERT INTO users (id, username, password, email, role) "
+                + "SELECT " + nextId + ", r.username, COALESCE(r.password, '" + LOCKED_PASSWORD + "'), r.email, "
+                + "COALESCE(r.role, 'USER') FROM catalog_import_rows r WHERE r.type = 'user' "
+                + "ON CONFLICT (email) DO NOTHING");
+        jdbcTemplate.execute("CREATE TEMP TABLE catalog_import_user_ids ON COMMIT DROP AS "
+                + "SELECT r.key, u.id FROM catalog_import_rows r JOIN users u ON u.email = r.email "
+                + "WHERE r.type = 'user'");
+
+        jdbcTemplate.execute("CREATE TEMP TABLE catalog_import_album_ids ON COMMIT DROP AS "
+                + "SELECT r.key, " + nextId + " AS id FROM catalog_import_rows r WHERE r.type = 'album'");
+        int albums = jdbcTemplate.update("INSERT INTO albums (id, title, cover_image_id) "
+                + "SELECT m.id, r.title, r.cover_image_id FROM catalog_import_rows r "
+                + "JOIN catalog_import_album_ids m ON m.key = r.key WHERE r.type = 'album'");
+
+        jdbcTemplate.execute("CREATE TEMP TABLE catalog_import_track_ids ON COMMIT DROP AS "
+                + "SELECT r.key, " + nextId + " AS id FROM catalog_import_rows r WHERE r.type = 'track'");
+        int tracks = jdbcTemplate.update("INSERT INTO tracks "
+                + "(id, title, duration, release_date, album_id, genre, media_file_id) "
+                + "SELECT m.id, r.title, r.duration, COALESCE(r.release_date, CURRENT_DATE), a.id, r.genre, "
+                + "r.media_file_id "
+                + "FROM catalog_import_rows r JOIN catalog_import_track_ids m ON m.key = r.key "
+                + "LEFT JOIN catalog_import_album_ids a ON a.key = r.album_key WHERE r.type = 'track'");
+        countMediaReferences(nextId);
+
+        int albumArtists = jdbcTemplate.update("INSERT INTO users_albums (album_id, user_id) "
+                + "SELECT DISTINCT a.id, u.id FROM catalog_import_rows r "
+                + "JOIN catalog_import_album_ids a ON a.key = r.album_key "
+                + "JOIN catalog_import_user_ids u ON u.key = r.user_key "
+                + "WHERE r.type = 'album_artist' ON CONFLICT DO NOTHING");
+        int trackArtists = jdbcTemplate.update("INSERT INTO users_tracks (track_id, user_id) "
+                + "SELECT DISTINCT t.id, u.id FROM catalog_import_rows r "
+                + "JOIN catalog_import_track_ids t ON t.key = r.track_key "
+                + "JOIN catalog_import_user_ids u ON u.key = r.user_key "
+                + "WHERE r.type = 'track_artist' ON CONFLICT DO NOTHING");
+
+        jdbcTemplate.execute("CREATE TEMP TABLE catalog_import_playlist_ids ON COMMIT DROP AS "
+                + "SELECT r.key, " + nextId + " AS id FROM catalog_import_rows r WHERE r.type = 'playlist'");
+        int playlists = jdbcTemplate.update("INSERT INTO playlists (id, name) "
+                + "SELECT m.id, r.title FROM catalog_import_rows r "
+                + "JOIN catalog_import_playlist_ids m ON m.key = r.key WHERE r.type = 'playlist'");
+        int playlistTracks = jdbcTemplate.update("INSERT INTO tracks_playlists (playlist_id, track_id) "
+                + "SELECT DISTINCT p.id, t.id FROM catalog_import_rows r "
+                + "JOIN catalog_import_playlist_ids p ON p.key = r.playlist_key "
+                + "JOIN catalog_import_track_ids t ON t.key = r.track_key "
+                + "WHERE r.type = 'playlist_track' ON CONFLICT DO NOTHING");
+        int playlistUsers = jdbcTemplate.update("INSERT INTO users_playlists (playlist_id, user_id) "
+                + "SELECT DISTINCT p.id, u.id FROM catalog_import_rows r "
+                + "JOIN catalog_import_playlist_ids p ON p.key = r.playlist_key "
+                + "JOIN catalog_import_user_ids u ON u.key = r.user_key "
+                + "WHERE r.type = 'playlist_user' ON CONFLICT DO NOTHING");
+
+        return CatalogImportResult.builder()
+                .rows(rows)
+                .users(users)
+                .albums(albums)
+                .tracks(tracks)
+                .albumArtists(albumArtists)
+                .trackArtists(trackArtists)
+                .playlists(playlists)
+                .playlistTracks(playlistTracks)
+                .playlistUsers(playlistUsers)
+                .elapsedMillis(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    /**
+     * Учитывает импортированные треки в счётчиках ссылок на файлы, иначе удаление
+     * одного трека сочло бы общий файл неиспользуемым и удалило его из Drive.
+     * Для файлов без записи счётчик равен числу всех треков с этим файлом, включая
+     * созданные до учёта ссылок. Содержимое таких файлов неизвестно, поэтому вместо
+     * хеша содержимого записывается хеш id файла: с загрузками он не совпадёт.
+     */
+    private void countMediaReferences(String nextId) {
+        jdbcTemplate.update("UPDATE media_blobs b SET reference_count = b.reference_count + i.refs "
+                + "FROM (SELECT media_file_id, COUNT(*) AS refs FROM catalog_import_rows WHERE type = 'track' "
+                + "GROUP BY media_file_id) i WHERE b.media_file_id = i.media_file_id");
+        jdbcTemplate.update("INSERT INTO media_blobs (id, content_hash, media_file_id, reference_count) "
+                + "SELECT " + nextId + ", encode(sha256(convert_to('drive-file:' || f.media_file_id, 'UTF8')), "
+                + "'hex'), f.media_file_id, f.refs FROM (SELECT t.media_file_id, COUNT(*) AS refs FROM tracks t "
+                + "WHERE t.media_file_id IN (SELECT media_file_id FROM catalog_import_rows WHERE type = 'track') "
+                + "AND NOT EXISTS (SELECT 1 FROM media_blobs b WHERE b.media_file_id = t.media_file_id) "
+                + "GROUP BY t.media_file_id) f");
+    }
+
+    private static void appendCopyLine(StringBuilder buffer, long line, CatalogImportRow row) {
+        buffer.append(line);
+        appendField(buffer, row.getType());
+        appendField(buffer, row.getKey());
+        appendField(buffer, row.getTitle());
+        appendField(buffer, row.getUsername());
+        appendField(buffer, row.getEmail());
+        appendField(buffer, row.getPasswordHash());
+        appendField(buffer, row.getRole());
+        buffer.append(',');
+        if (row.getDuration() != null) {
+            buffer.append(row.getDuration().intValue());
+        }
+        appendField(buffer, row.getReleaseDate());
+        appendField(buffer, row.getGenre());
+        appendField(buffer, row.getMediaFileId());
+        appendField(buffer, row.getCoverImageId());
+        appendField(buffer, row.getAlbum());
+        appendField(buffer, row.getUser());
+        appendField(buffer, row.getTrack());
+        appendField(buffer, row.getPlaylist());
+        buffer.append('\n');
+    }
+
+    /**
+     * Пустое поле без кавычек COPY читает как NULL, поэтому строки всегда в кавычках.
+     */
+    private static void appendField(StringBuilder buffer, String value) {
+        buffer.append(',');
+        if (value != null) {
+            buffer.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    private static void writeToCopy(CopyIn copy, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private static void cancelQuietly(CopyIn copy) {
+        if (copy != null && copy.isActive()) {
+            try {
+                copy.cancelCopy();
+            } catch (SQLException e) {
+                logger.warn("Could not cancel catalog COPY: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void require(long line, String field, String value) {
+        if (value == null || value.isBlank()) {
+            throw invalid(line, "не заполнено поле " + field);
+        }
+    }
+
+    private static void maxLength(long line, String field, String value, int max) {
+        if (value != null && value.length() > max) {
+            throw invalid(line, "поле " + field + " длиннее " + max + " символов");
+        }
+    }
+
+    private static ValidationException invalid(long line, String problem) {
+        return new ValidationException("Строка " + line + ": " + problem);
+    }
+
+    private interface RowReader extends Closeable {
+
+        /**
+         * @return следующая строка или {@code null} в конце данных
+         */
+        CatalogImportRow next() throws IOException;
+
+        long lineNumber();
+    }
+
+    private final class NdjsonRowReader implements RowReader {
+
+        private final MappingIterator<CatalogImportRow> rows;
+        private long line;
+
+        private NdjsonRowReader(InputStream body) throws IOException {
+            this.rows = objectMapper.readerFor(CatalogImportRow.class).readValues(body);
+        }
+
+        @Override
+        public CatalogImportRow next() throws IOException {
+            try {
+                if (!rows.hasNextValue()) {
+                    return null;
+                }
+                CatalogImportRow row = rows.nextValue();
+                line = rows.getCurrentLocation().getLineNr();
+                return row;
+            } catch (JsonProcessingException e) {
+                throw invalid(e.getLocation() == null ? line + 1 : e.getLocation().getLineNr(),
+                        "некорректный JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public long lineNumber() {
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
+
+    /**
+     * CSV с заголовком из имён полей {@link CatalogImportRow}. Поля в кавычках
+     * могут содержать запятые и кавычки, но не переводы строк.
+     */
+    static final class CsvRowReader implements RowReader {
+
+        private static final Set<String> COLUMNS = Set.of("type", "key", "title", "username", "email",
+                "passwordHash", "role", "duration", "releaseDate", "genre", "mediaFileId", "coverImageId", "album", "user",
+                "track", "playlist");
+
+        private final BufferedReader reader;
+        private final List<String> header;
+        private long line = 1;
+
+        CsvRowReader(InputStream body) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw invalid(1, "нет заголовка CSV");
+            }
+            this.header = parseLine(headerLine.replace("\uFEFF", ""), 1);
+            for (String column : header) {
+                if (column == null || !COLUMNS.contains(column)) {
+                    throw invalid(1, "неизвестная колонка " + column);
+                }
+            }
+        }
+
+        @Override
+        public CatalogImportRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+
+            List<String> fields = parseLine(text, line);
+            if (fields.size() != header.size()) {
+                throw invalid(line, "ожидалось " + header.size() + " полей, получено " + fields.size());
+            }
+            CatalogImportRow row = new CatalogImportRow();
+            for (int i = 0; i < fields.size(); i++) {
+                set(row, header.get(i), fields.get(i));
+            }
+            return row;
+        }
+
+        @Override
+        public long lineNumber() {
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private void set(CatalogImportRow row, String column, String value) {
+            switch (column) {
+                case "type" -> row.setType(value);
+                case "key" -> row.setKey(value);
+                case "title" -> row.setTitle(value);
+                case "username" -> row.setUsername(value);
+                case "email" -> row.setEmail(value);
+                case "passwordHash" -> row.setPasswordHash(value);
+                case "role" -> row.setRole(value);
+                case "duration" -> row.setDuration(parseDuration(value));
+                case "releaseDate" -> row.setReleaseDate(value);
+                case "genre" -> row.setGenre(value);
+                case "mediaFileId" -> row.setMediaFileId(value);
+                case "coverImageId" -> row.setCoverImageId(value);
+                case "album" -> row.setAlbum(value);
+                case "user" -> row.setUser(value);
+                case "track" -> row.setTrack(value);
+                default -> row.setPlaylist(value);
+            }
+        }
+
+        private Integer parseDuration(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                throw invalid(line, "duration должна быть числом");
+            }
+        }
+
+        /**
+         * Разбирает строку CSV; пустое поле без кавычек означает {@code null}.
+         */
+        static List<String> parseLine(String text, long line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean inQuotes = false;
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (inQuotes) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (c == '"') {
+                    inQuotes = true;
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.length() == 0 && !quoted ? null : field.toString());
+                    field.setLength(0);
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            }
+            if (inQuotes) {
+                throw invalid(line, "незакрытые кавычки");
+            }
+            fields.add(field.length() == 0 && !quoted ? null : field.toString());
+            return fields;
+        }
+    }
+}
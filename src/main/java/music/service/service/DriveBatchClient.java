@@ -0,0 +1,115 @@
+package music.service.service;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import music.service.service.DriveCallGuard.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Группирует удаления и запросы метаданных Google Drive в batch-запросы
+ * (до 100 операций в одном HTTP-запросе) с результатом по каждому файлу.
+ */
+@Component
+public class DriveBatchClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveBatchClient.class);
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int NOT_FOUND = 404;
+
+    private final Drive googleDriveService;
+    private final DriveCallGuard driveCallGuard;
+
+    public DriveBatchClient(Drive googleDriveService, DriveCallGuard driveCallGuard) {
+        this.googleDriveService = googleDriveService;
+        this.driveCallGuard = driveCallGuard;
+    }
+
+    public Map<String, BatchResult> deleteFiles(Collection<String> fileIds) throws IOException {
+        Map<String, BatchResult> results = new LinkedHashMap<>();
+        List<List<String>> chunks = chunks(fileIds);
+        for (List<String> chunk : chunks) {
+            // Batch собирается заново на каждую попытку: выполненный BatchRequest очищает очередь
+            driveCallGuard.call(Operation.BATCH, () -> {
+                BatchRequest batch = googleDriveService.batch();
+                for (String fileId : chunk) {
+                    googleDriveService.files().delete(fileId).queue(batch, new JsonBatchCallback<Void>() {
+                        @Override
+                        public void onSuccess(Void content, HttpHeaders responseHeaders) {
+                            results.put(fileId, BatchResult.ok(fileId));
+                        }
+
+                        @Override
+                        public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                            // Уже удалённый файл считаем успешно удалённым
+                            results.put(fileId, error.getCode() == NOT_FOUND
+                                    ? BatchResult.ok(fileId)
+                                    : BatchResult.failed(fileId, error.getMessage()));
+                        }
+                    });
+                }
+                batch.execute();
+                return null;
+            });
+        }
+        logger.debug("Deleted {} Drive files in {} batch requests", results.size(), chunks.size());
+        return results;
+    }
+
+    public Map<String, File> getFiles(Collection<String> fileIds, String fields) throws IOException {
+        Map<String, File> files = new LinkedHashMap<>();
+        for (List<String> chunk : chunks(fileIds)) {
+            driveCallGuard.call(Operation.BATCH, () -> {
+                BatchRequest batch = googleDriveService.batch();
+                for (String fileId : chunk) {
+                    googleDriveService.files().get(fileId).setFields(fields).queue(batch, new JsonBatchCallback<File>() {
+                        @Override
+                        public void onSuccess(File file, HttpHeaders responseHeaders) {
+                            files.put(fileId, file);
+                        }
+
+                        @Override
+                        public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                            logger.warn("Could not read metadata of Drive file {}: {}", fileId, error.getMessage());
+                        }
+                    });
+                }
+                batch.execute();
+                return null;
+            });
+        }
+        return files;
+    }
+
+    private static List<List<String>> chunks(Collection<String> fileIds) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(fileIds));
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += MAX_BATCH_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + MAX_BATCH_SIZE, distinct.size())));
+        }
+        return chunks;
+    }
+
+    public record BatchResult(String fileId, boolean success, String error) {
+
+        static BatchResult ok(String fileId) {
+            return new BatchResult(fileId, true, null);
+        }
+
+        static BatchResult failed(String fileId, String error) {
+            return new BatchResult(fileId, false, error);
+        }
+    }
+}
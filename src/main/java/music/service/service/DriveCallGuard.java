@@ -0,0 +1,386 @@
+package music.service.service;
+
+import com.google.api.client.http.HttpResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import music.service.exception.StorageUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Защищает потоки запросов от медленного Google Drive: каждый вызов выполняется
+ * с таймаутом на отдельном ограниченном пуле (bulkhead), идемпотентные вызовы
+ * повторяются с задержкой, а при массовых сбоях предохранитель размыкается и
+ * вызовы сразу завершаются {@link StorageUnavailableException}.
+ */
+@Component
+public class DriveCallGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveCallGuard.class);
+
+    public enum Operation {
+        METADATA(true, false),
+        LIST(true, false),
+        BATCH(true, false),
+        DELETE(true, false),
+        DOWNLOAD(true, true),
+        UPLOAD(false, true);
+
+        private final boolean idempotent;
+        private final boolean transfer;
+
+        Operation(boolean idempotent, boolean transfer) {
+            this.idempotent = idempotent;
+            this.transfer = transfer;
+        }
+
+        public boolean isIdempotent() {
+            return idempotent;
+        }
+    }
+
+    @FunctionalInterface
+    public interface DriveCall<T> {
+        T execute() throws IOException;
+    }
+
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMillis;
+    private final long metadataTimeoutMillis;
+    private final long transferTimeoutMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long maxRetryBackoffMillis;
+
+    private final CircuitBreaker circuitBreaker;
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+
+    public DriveCallGuard(MeterRegistry meterRegistry,
+                          @Value("${media.drive.bulkhead.max-concurrent:16}") int maxConcurrent,
+                          @Value("${media.drive.bulkhead.max-wait-ms:100}") long bulkheadWaitMillis,
+                          @Value("${media.drive.timeout.metadata-ms:5000}") long metadataTimeoutMillis,
+                          @Value("${media.drive.timeout.transfer-ms:60000}") long transferTimeoutMillis,
+                          @Value("${media.drive.retry.max-attempts:3}") int maxAttempts,
+                          @Value("${media.drive.retry.backoff-ms:200}") long retryBackoffMillis,
+                          @Value("${media.drive.retry.max-backoff-ms:2000}") long maxRetryBackoffMillis,
+                          @Value("${media.drive.circuit.window-size:20}") int windowSize,
+                          @Value("${media.drive.circuit.minimum-calls:10}") int minimumCalls,
+                          @Value("${media.drive.circuit.failure-rate-percent:50}") int failureRatePercent,
+                          @Value("${media.drive.circuit.open-ms:30000}") long openMillis) {
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.metadataTimeoutMillis = metadataTimeoutMillis;
+        this.transferTimeoutMillis = transferTimeoutMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.maxRetryBackoffMillis = maxRetryBackoffMillis;
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRatePercent, openMillis);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "drive-call-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("drive.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Free Google Drive call slots")
+                .register(meterRegistry);
+        Gauge.builder("drive.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Google Drive circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
+
+    public <T> T call(Operation operation, DriveCall<T> call) throws IOException {
+        int attempt = 1;
+        while (true) {
+            try {
+                return attempt(operation, call);
+            } catch (IOException e) {
+                if (!operation.isIdempotent() || attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                long delay = retryDelay(attempt);
+                logger.debug("Drive {} call failed (attempt {}), retrying in {} ms: {}",
+                        operation, attempt, delay, e.getMessage());
+                Counter.builder("drive.calls.retries")
+                        .tag("operation", tagValue(operation))
+                        .register(meterRegistry)
+                        .increment();
+                sleep(delay);
+                attempt++;
+            }
+        }
+    }
+
+    private <T> T attempt(Operation operation, DriveCall<T> call) throws IOException {
+        long startedAt = System.nanoTime();
+        if (!circuitBreaker.tryAcquire()) {
+            record(operation, "short_circuited", startedAt);
+            throw new StorageUnavailableException("Google Drive circuit breaker is open", false);
+        }
+
+        if (!acquireBulkhead()) {
+            circuitBreaker.releaseUnused();
+            record(operation, "rejected", startedAt);
+            throw new StorageUnavailableException("Too many concurrent Google Drive calls", false);
+        }
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    return call.execute();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            circuitBreaker.releaseUnused();
+            record(operation, "rejected", startedAt);
+            throw new StorageUnavailableException("Google Drive call executor is shut down", false);
+        }
+
+        long timeoutMillis = operation.transfer ? transferTimeoutMillis : metadataTimeoutMillis;
+        try {
+            T result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            record(operation, "success", startedAt);
+            return result;
+        } catch (TimeoutException e) {
+            // Поток остаётся занятым до таймаута чтения транспорта, но запрос клиента уже свободен
+            future.cancel(true);
+            circuitBreaker.onFailure();
+            record(operation, "timeout", startedAt);
+            throw new StorageUnavailableException(
+                    "Google Drive " + tagValue(operation) + " call timed out after " + timeoutMillis + " ms", true);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (isStorageFailure(cause)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            record(operation, "failure", startedAt);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            circuitBreaker.releaseUnused();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Google Drive");
+        }
+    }
+
+    private boolean acquireBulkhead() throws InterruptedIOException {
+        try {
+            return bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a Google Drive call slot");
+        }
+    }
+
+    private void record(Operation operation, String outcome, long startedAt) {
+        Timer.builder("drive.calls")
+                .description("Google Drive calls made through the call guard")
+                .tag("operation", tagValue(operation))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Ответы 4xx (кроме 429) означают, что Drive работает, а ошибка в самом запросе.
+     */
+    private static boolean isStorageFailure(Throwable error) {
+        if (error instanceof HttpResponseException) {
+            int status = ((HttpResponseException) error).getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return error instanceof IOException;
+    }
+
+    private static boolean isRetryable(IOException error) {
+        if (error instanceof StorageUnavailableException) {
+            return ((StorageUnavailableException) error).isRetryable();
+        }
+        if (error instanceof InterruptedIOException && Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        return isStorageFailure(error);
+    }
+
+    long retryDelay(int attempt) {
+        long delay = retryBackoffMillis << Math.min(attempt - 1, 20);
+        if (delay <= 0 || delay > maxRetryBackoffMillis) {
+            delay = maxRetryBackoffMillis;
+        }
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off a Google Drive retry");
+        }
+    }
+
+    private static String tagValue(Operation operation) {
+        return operation.name().toLowerCase(Locale.ROOT);
+    }
+
+    CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Предохранитель по доле неудачных вызовов в скользящем окне последних вызовов.
+     * После паузы в разомкнутом состоянии пропускает один пробный вызов.
+     */
+    static final class CircuitBreaker {
+
+        enum State {
+            CLOSED, OPEN, HALF_OPEN
+        }
+
+        private final boolean[] window;
+        private final int minimumCalls;
+        private final int failureRatePercent;
+        private final long openMillis;
+
+        private State state = State.CLOSED;
+        private int position;
+        private int recorded;
+        private int failures;
+        private long openUntil;
+        private boolean probeInFlight;
+
+        CircuitBreaker(int windowSize, int minimumCalls, int failureRatePercent, long openMillis) {
+            this.window = new boolean[Math.max(1, windowSize)];
+            this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+            this.failureRatePercent = failureRatePercent;
+            this.openMillis = openMillis;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() < openUntil) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+                logger.info("Google Drive circuit breaker is half-open, sending a probe call");
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+            }
+            return true;
+        }
+
+        synchronized void releaseUnused() {
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+            }
+        }
+
+        synchronized void onSuccess() {
+            if (state == State.HALF_OPEN) {
+                reset();
+                state = State.CLOSED;
+                logger.info("Google Drive circuit breaker closed");
+                return;
+            }
+            add(false);
+        }
+
+        synchronized void onFailure() {
+            if (state == State.HALF_OPEN) {
+                open();
+                return;
+            }
+            if (state == State.OPEN) {
+                return;
+            }
+            add(true);
+            if (recorded >= minimumCalls && failures * 100 >= failureRatePercent * recorded) {
+                open();
+            }
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        private void add(boolean failure) {
+            if (recorded == window.length) {
+                if (window[position]) {
+                    failures--;
+                }
+            } else {
+                recorded++;
+            }
+            window[position] = failure;
+            if (failure) {
+                failures++;
+            }
+            position = (position + 1) % window.length;
+        }
+
+        private void open() {
+            reset();
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+            logger.warn("Google Drive circuit breaker opened for {} ms", openMillis);
+        }
+
+        private void reset() {
+            position = 0;
+            recorded = 0;
+            failures = 0;
+            probeInFlight = false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package music.service.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Кеш начальных сегментов часто проигрываемых файлов в памяти, ключ — id файла
+ * и номер сегмента. Файл попадает в кеш только после нескольких обращений,
+ * чтобы разовые прослушивания не вытесняли популярные треки.
+ */
+@Component
+public class HotSegmentCache {
+
+    private static final int MAX_TRACKED_FILES = 10_000;
+
+    private final int segmentSize;
+    private final int headSegments;
+    private final long maxBytes;
+    private final int admitAfter;
+
+    private final Map<SegmentKey, byte[]> segments = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> accessCounts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_TRACKED_FILES;
+        }
+    };
+    private long totalBytes;
+
+    public HotSegmentCache(@Value("${media.hot-segments.segment-bytes:65536}") int segmentSize,
+                           @Value("${media.hot-segments.head-segments:4}") int headSegments,
+                           @Value("${media.hot-segments.max-bytes:67108864}") long maxBytes,
+                           @Value("${media.hot-segments.admit-after:2}") int admitAfter) {
+        this.segmentSize = segmentSize;
+        this.headSegments = headSegments;
+        this.maxBytes = maxBytes;
+        this.admitAfter = admitAfter;
+    }
+
+    public long getHeadBytes() {
+        return (long) segmentSize * headSegments;
+    }
+
+    /**
+     * Учитывает промах по началу файла.
+     *
+     * @return {@code true}, если файл стал достаточно популярным для кеширования
+     */
+    public synchronized boolean recordMiss(String fileId) {
+        return accessCounts.merge(fileId, 1, Integer::sum) >= admitAfter;
+    }
+
+    /**
+     * Возвращает непрерывный участок диапазона, начиная со {@code start}, который есть
+     * в памяти. Участок может быть короче запрошенного.
+     */
+    public synchronized Optional<byte[]> read(String fileId, long start, long endInclusive) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long position = start;
+        while (position <= endInclusive && position < getHeadBytes()) {
+            int index = (int) (position / segmentSize);
+            byte[] segment = segments.get(new SegmentKey(fileId, index));
+            if (segment == null) {
+                break;
+            }
+            int offset = (int) (position - (long) index * segmentSize);
+            if (offset >= segment.length) {
+                break;
+            }
+            int length = (int) Math.min(segment.length - offset, endInclusive - position + 1);
+            output.write(segment, offset, length);
+            position += length;
+            if (segment.length < segmentSize) {
+                // Последний сегмент короткого файла
+                break;
+            }
+        }
+        return position == start ? Optional.empty() : Optional.of(output.toByteArray());
+    }
+
+    /**
+     * Сохраняет начало файла, начиная с нулевого байта, разбивая его на сегменты.
+     */
+    public synchronized void putHead(String fileId, byte[] head) {
+        int limit = (int) Math.min(head.length, getHeadBytes());
+        for (int index = 0; (long) index * segmentSize < limit; index++) {
+            int from = index * segmentSize;
+            byte[] segment = Arrays.copyOfRange(head, from, Math.min(from + segmentSize, limit));
+            byte[] previous = segments.put(new SegmentKey(fileId, index), segment);
+            if (previous != null) {
+                totalBytes -= previous.length;
+            }
+            totalBytes += segment.length;
+        }
+        evictOverBudget();
+    }
+
+    public synchronized void evict(String fileId) {
+        for (int index = 0; index < headSegments; index++) {
+            byte[] removed = segments.remove(new SegmentKey(fileId, index));
+            if (removed != null) {
+                totalBytes -= removed.length;
+            }
+        }
+        accessCounts.remove(fileId);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<SegmentKey, byte[]>> iterator = segments.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    record SegmentKey(String fileId, int index) {}
+}
@@ -0,0 +1,220 @@
+package music.service.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import music.service.service.ImageVariantStore.StoredVariant;
+import music.service.service.MediaService.FileInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Уменьшенные копии изображений (обложек альбомов) для списков и сеток.
+ * Размер запроса округляется вверх до ближайшего разрешённого, чтобы кеш
+ * не разрастался от произвольных значений. Декодирование и уменьшение занимают
+ * много памяти, поэтому одновременно их выполняет ограниченное число запросов,
+ * а крупные исходники читаются с прореживанием пикселей.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;
+
+    private final MediaService mediaService;
+    private final ImageVariantStore variantStore;
+    private final List<Integer> sizes;
+    private final float jpegQuality;
+    private final Semaphore decodeSlots;
+
+    public ImageVariantService(MediaService mediaService,
+                               ImageVariantStore variantStore,
+                               @Value("${media.image-variants.sizes:64,128,256,512}") String sizes,
+                               @Value("${media.image-variants.jpeg-quality:0.85}") float jpegQuality,
+                               @Value("${media.image-variants.max-concurrent-decodes:2}") int maxConcurrentDecodes) {
+        this.mediaService = mediaService;
+        this.variantStore = variantStore;
+        this.sizes = Arrays.stream(sizes.split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .sorted()
+                .collect(Collectors.toList());
+        this.jpegQuality = jpegQuality;
+        this.decodeSlots = new Semaphore(Math.max(1, maxConcurrentDecodes));
+    }
+
+    public int resolveSize(int requested) {
+        return sizes.stream()
+                .filter(size -> size >= requested)
+                .findFirst()
+                .orElse(sizes.get(sizes.size() - 1));
+    }
+
+    /**
+     * @return вариант из кеша или созданный заново; пусто, если файл не является
+     *         поддерживаемым изображением
+     */
+    public Optional<ImageVariant> getVariant(String fileId, int requestedSize) throws IOException {
+        int size = resolveSize(requestedSize);
+        Optional<StoredVariant> cached = variantStore.get(fileId, size);
+        if (cached.isPresent()) {
+            try {
+                return Optional.of(new ImageVariant(Files.readAllBytes(cached.get().path()),
+                        cached.get().contentType(), size));
+            } catch (NoSuchFileException e) {
+                // Вытеснен параллельно по бюджету, создаём заново
+                logger.debug("Image variant {} disappeared, recreating", cached.get().key());
+            }
+        }
+
+        FileInfo fileInfo = mediaService.getFileInfo(fileId);
+        if (fileInfo.mimeType() == null || !fileInfo.mimeType().startsWith("image/")) {
+            return Optional.empty();
+        }
+
+        byte[] content = mediaService.downloadFile(fileId);
+        boolean alpha;
+        byte[] encoded;
+        acquireDecodeSlot();
+        try {
+            BufferedImage source = decode(content, size);
+            if (source == null) {
+                return Optional.empty();
+            }
+            alpha = source.getColorModel().hasAlpha();
+            BufferedImage scaled = scale(source, size);
+            encoded = alpha ? encodePng(scaled) : encodeJpeg(scaled);
+            logger.debug("Created {}px variant of image {}: decoded {}x{} -> {} bytes",
+                    size, fileId, source.getWidth(), source.getHeight(), encoded.length);
+        } finally {
+            decodeSlots.release();
+        }
+        String format = alpha ? "png" : "jpg";
+        StoredVariant stored = variantStore.put(fileId, size, encoded, format);
+        return Optional.of(new ImageVariant(encoded, stored.contentType(), size));
+    }
+
+    private void acquireDecodeSlot() throws InterruptedIOException {
+        try {
+            decodeSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an image decode slot");
+        }
+    }
+
+    /**
+     * Декодирует изображение, пропуская строки и столбцы, лишние для размера
+     * {@code size}: прочитанная копия остаётся не меньше удвоенного размера,
+     * чтобы пошаговое уменьшение сохранило качество.
+     */
+    static BufferedImage decode(byte[] content, int size) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_SOURCE_PIXELS) {
+                    logger.warn("Refusing to decode image with {} pixels", pixels);
+                    return null;
+                }
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestSide / (2 * size));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Уменьшает изображение так, чтобы большая сторона не превышала {@code maxSize}.
+     * Уменьшение идёт шагами не более чем вдвое: билинейная интерполяция за один
+     * большой шаг пропускает пиксели и даёт «лесенку».
+     */
+    static BufferedImage scale(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        boolean alpha = source.getColorModel().hasAlpha();
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int currentWidth = width;
+        int currentHeight = height;
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (!alpha) {
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, currentWidth, currentHeight);
+                }
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    public record ImageVariant(byte[] content, String contentType, int size) {}
+}
@@ -0,0 +1,166 @@
+package music.service.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Дисковый кеш уменьшенных копий изображений, ключ — id файла и размер.
+ * Содержимое файла в Google Drive по id не меняется, поэтому копии переживают
+ * перезапуск и удаляются только при удалении исходного файла или по бюджету.
+ */
+@Component
+public class ImageVariantStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantStore.class);
+    private static final String SEPARATOR = "@";
+    private static final String TEMP_PREFIX = "variant";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Pattern VARIANT_NAME = Pattern.compile("[A-Za-z0-9_-]+" + SEPARATOR + "\\d+\\.(jpg|png)");
+    private static final Pattern TEMP_NAME = Pattern.compile(TEMP_PREFIX + "\\d+" + Pattern.quote(TEMP_SUFFIX));
+
+    private final Path directory;
+    private final long maxBytes;
+
+    private final Map<String, StoredVariant> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ImageVariantStore(@Value("${media.image-variants.dir:image-variants}") String directory,
+                             @Value("${media.image-variants.max-bytes:268435456}") long maxBytes) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    @PostConstruct
+    synchronized void init() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> existing;
+        try (Stream<Path> files = Files.list(directory)) {
+            existing = files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        List<StoredVariant> restored = new ArrayList<>();
+        for (Path path : existing) {
+            String name = path.getFileName().toString();
+            if (TEMP_NAME.matcher(name).matches()) {
+                // Недописанная копия после аварийной остановки
+                Files.deleteIfExists(path);
+                continue;
+            }
+            if (!VARIANT_NAME.matcher(name).matches()) {
+                logger.debug("Skipping foreign file {} in image variant directory", path);
+                continue;
+            }
+            int extension = name.lastIndexOf('.');
+            restored.add(new StoredVariant(name.substring(0, extension), path,
+                    contentTypeOf(name.substring(extension + 1)), Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+        }
+        restored.sort(Comparator.comparingLong(StoredVariant::lastModified));
+        for (StoredVariant variant : restored) {
+            entries.put(variant.key(), variant);
+            totalBytes += variant.length();
+        }
+        evictOverBudget();
+        logger.info("Image variant cache holds {} files, {} bytes", entries.size(), totalBytes);
+    }
+
+    public synchronized Optional<StoredVariant> get(String fileId, int size) {
+        return Optional.ofNullable(entries.get(key(fileId, size)));
+    }
+
+    public StoredVariant put(String fileId, int size, byte[] content, String format) throws IOException {
+        String key = key(fileId, size);
+        Path target = directory.resolve(key + "." + format);
+        Path temp = Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        StoredVariant variant = new StoredVariant(key, target, contentTypeOf(format), content.length,
+                System.currentTimeMillis());
+        synchronized (this) {
+            StoredVariant previous = entries.put(key, variant);
+            if (previous != null) {
+                totalBytes -= previous.length();
+                if (!previous.path().equals(target)) {
+                    deleteQuietly(previous.path());
+                }
+            }
+            totalBytes += variant.length();
+            evictOverBudget();
+        }
+        return variant;
+    }
+
+    public void evict(String fileId) {
+        String prefix = toFileName(fileId) + SEPARATOR;
+        List<StoredVariant> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, StoredVariant>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, StoredVariant> entry = iterator.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    iterator.remove();
+                    totalBytes -= entry.getValue().length();
+                    removed.add(entry.getValue());
+                }
+            }
+        }
+        removed.forEach(variant -> deleteQuietly(variant.path()));
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, StoredVariant>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            StoredVariant eldest = iterator.next().getValue();
+            iterator.remove();
+            totalBytes -= eldest.length();
+            deleteQuietly(eldest.path());
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete image variant {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static String key(String fileId, int size) {
+        return toFileName(fileId) + SEPARATOR + size;
+    }
+
+    private static String toFileName(String fileId) {
+        return fileId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private static String contentTypeOf(String format) {
+        return "png".equals(format) ? "image/png" : "image/jpeg";
+    }
+
+    public record StoredVariant(String key, Path path, String contentType, long length, long lastModified) {}
+}
@@ -0,0 +1,70 @@
+package music.service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import music.service.dto.CursorPage;
+import music.service.exception.ValidationException;
+
+/**
+ * Непрозрачный курсор keyset-пагинации: поле сортировки, значение этого поля
+ * у последней отданной строки и её id. Следующая страница читается условием
+ * {@code (sort, id) > (value, id)} по индексу, поэтому её стоимость не зависит
+ * от того, как далеко пролистан список.
+ */
+public record KeysetCursor(String sort, String value, long id) {
+
+    private static final String SEPARATOR = "\n";
+
+    /**
+     * Курсор перед первой строкой: пустая строка меньше любого значения,
+     * а id из последовательности всегда положительны.
+     */
+    public static KeysetCursor start(String sort) {
+        return new KeysetCursor(sort, "", 0);
+    }
+
+    public static KeysetCursor decode(String token, String sort) {
+        if (token == null || token.isBlank()) {
+            return start(sort);
+        }
+        String[] parts;
+        long id;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = decoded.split(SEPARATOR, 3);
+            id = parts.length == 3 ? Long.parseLong(parts[1]) : -1;
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор");
+        }
+        if (parts.length != 3 || !parts[0].equals(sort)) {
+            throw new ValidationException("Курсор не соответствует сортировке " + sort);
+        }
+        return new KeysetCursor(parts[0], parts[2], id);
+    }
+
+    public String encode() {
+        String raw = sort + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Собирает страницу из {@code size + 1} прочитанных строк: лишняя строка
+     * только показывает, что следующая страница есть.
+     */
+    public static <T, R> CursorPage<R> page(List<T> rows, int size, String sort,
+                                            Function<T, String> sortValue,
+                                            Function<T, Long> idOf,
+                                            Function<T, R> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<T> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            T last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(sort, sortValue.apply(last), idOf.apply(last)).encode();
+        }
+        return new CursorPage<>(items.stream().map(mapper).collect(Collectors.toList()), nextCursor);
+    }
+}
@@ -0,0 +1,211 @@
+package music.service.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Локальное дисковое хранилище начальных фрагментов медиафайлов.
+ * Фрагмент всегда начинается с нулевого байта; если он покрывает весь файл,
+ * файл может быть отдан целиком без обращения к Google Drive.
+ */
+@Component
+public class LocalMediaStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalMediaStore.class);
+    private static final String MEDIA_SUFFIX = ".media";
+    private static final String TEMP_PREFIX = "local-media-";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    private final Map<String, StoredMedia> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public LocalMediaStore(@Value("${media.local.dir:media-cache}") String directory,
+                           @Value("${media.local.max-bytes:536870912}") long maxBytes) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Удаляет файлы, оставшиеся от прошлого запуска. Трогает только файлы хранилища,
+     * поэтому каталог можно делить с чем-то ещё.
+     */
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> stale = Files.list(directory)) {
+            stale.filter(Files::isRegularFile).filter(LocalMediaStore::isOwnFile).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    public synchronized Optional<StoredMedia> get(String fileId) {
+        return Optional.ofNullable(entries.get(fileId));
+    }
+
+    public boolean covers(String fileId, long start, long endInclusive) {
+        return get(fileId).map(media -> media.covers(start, endInclusive)).orElse(false);
+    }
+
+    public boolean hasPrefix(String fileId, long bytes) {
+        return get(fileId).map(media -> media.length() >= bytes || media.isComplete()).orElse(false);
+    }
+
+    public Optional<byte[]> readRange(String fileId, long start, long endInclusive) throws IOException {
+        Optional<StoredMedia> stored = get(fileId);
+        if (stored.isEmpty() || !stored.get().covers(start, endInclusive)) {
+            return Optional.empty();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (endInclusive - start + 1));
+        try (FileChannel channel = FileChannel.open(stored.get().path(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    return Optional.empty();
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Файл вытеснили между проверкой и чтением: вызывающий код пойдёт в Drive
+            logger.debug("Local copy of media file {} was evicted during read", fileId);
+            return Optional.empty();
+        }
+        return Optional.of(buffer.array());
+    }
+
+    public void storePrefix(String fileId, byte[] prefix, Long fileSize) throws IOException {
+        if (prefix.length > maxBytes) {
+            return;
+        }
+        Path target = directory.resolve(toFileName(fileId));
+        Path temp = Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+        try {
+            Files.write(temp, prefix);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        synchronized (this) {
+            StoredMedia previous = entries.put(fileId, new StoredMedia(target, prefix.length, fileSize));
+            if (previous != null) {
+                totalBytes -= previous.length();
+            }
+            totalBytes += prefix.length;
+            evictOverBudget();
+        }
+        logger.debug("Stored {} bytes of media file {} locally", prefix.length, fileId);
+    }
+
+    /**
+     * Временный файл в каталоге хранилища, чтобы его можно было атомарно
+     * переместить через {@link #adoptComplete}.
+     */
+    public Path newTempFile() throws IOException {
+        return Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+    }
+
+    /**
+     * Забирает полностью скачанный файл в хранилище.
+     *
+     * @return {@code false}, если файл больше бюджета хранилища и не был принят
+     */
+    public boolean adoptComplete(String fileId, Path source, long length) throws IOException {
+        if (length > maxBytes) {
+            return false;
+        }
+        Path target = directory.resolve(toFileName(fileId));
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            StoredMedia previous = entries.put(fileId, new StoredMedia(target, length, length));
+            if (previous != null) {
+                totalBytes -= previous.length();
+            }
+            totalBytes += length;
+            evictOverBudget();
+        }
+        logger.debug("Stored complete copy of media file {} ({} bytes) locally", fileId, length);
+        return true;
+    }
+
+    public void evict(String fileId) {
+        StoredMedia removed;
+        synchronized (this) {
+            removed = entries.remove(fileId);
+            if (removed != null) {
+                totalBytes -= removed.length();
+            }
+        }
+        if (removed != null) {
+            deleteQuietly(removed.path());
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, StoredMedia>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, StoredMedia> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue().length();
+            deleteQuietly(eldest.getValue().path());
+            logger.debug("Evicted local copy of media file {}", eldest.getKey());
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete local media file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static String toFileName(String fileId) {
+        return fileId.replaceAll("[^A-Za-z0-9_-]", "_") + MEDIA_SUFFIX;
+    }
+
+    private static boolean isOwnFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(MEDIA_SUFFIX) || (name.startsWith(TEMP_PREFIX) && name.endsWith(TEMP_SUFFIX));
+    }
+
+    public record StoredMedia(Path path, long length, Long fileSize) {
+
+        public boolean covers(long start, long endInclusive) {
+            return start >= 0 && endInclusive < length;
+        }
+
+        public boolean isComplete() {
+            return fileSize != null && length >= fileSize;
+        }
+    }
+}
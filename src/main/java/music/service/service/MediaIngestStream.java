@@ -0,0 +1,105 @@
+package music.service.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.apache.tika.Tika;
+
+/**
+ * Поток загрузки, который за одно чтение определяет тип файла по первым байтам,
+ * считает хеш содержимого и передаёт данные дальше в хранилище.
+ */
+public class MediaIngestStream extends FilterInputStream {
+
+    static final int SNIFF_LENGTH = 8 * 1024;
+    private static final Tika DETECTOR = new Tika();
+
+    private final MessageDigest digest;
+    private final String detectedType;
+    private long size;
+    private String contentHash;
+
+    private MediaIngestStream(InputStream in, MessageDigest digest, String detectedType) {
+        super(in);
+        this.digest = digest;
+        this.detectedType = detectedType;
+    }
+
+    public static MediaIngestStream open(InputStream source, String fileName, String hashAlgorithm)
+            throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(hashAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unsupported hash algorithm: " + hashAlgorithm, e);
+        }
+
+        byte[] prefix = source.readNBytes(SNIFF_LENGTH);
+        String detectedType = DETECTOR.detect(prefix, fileName);
+        InputStream replay = new SequenceInputStream(new ByteArrayInputStream(prefix), source);
+        return new MediaIngestStream(replay, digest, detectedType);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            digest.update((byte) value);
+            size++;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+        if (count > 0) {
+            digest.update(buffer, offset, count);
+            size += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (count < 0) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public String getDetectedType() {
+        return detectedType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Хеш доступен после того, как поток прочитан до конца.
+     */
+    public String getContentHash() {
+        if (contentHash == null) {
+            byte[] bytes = digest.digest();
+            contentHash = String.format("%0" + (bytes.length * 2) + "x", new BigInteger(1, bytes));
+        }
+        return contentHash;
+    }
+}
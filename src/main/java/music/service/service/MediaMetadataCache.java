@@ -0,0 +1,69 @@
+package music.service.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import music.service.service.MediaService.FileInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MediaMetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaMetadataCache.class);
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries;
+
+    public MediaMetadataCache(@Value("${media.metadata-cache.max-size:1000}") int maxSize,
+                              @Value("${media.metadata-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MediaMetadataCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized Optional<FileInfo> get(String fileId) {
+        Entry entry = entries.get(fileId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(fileId);
+            logger.debug("Metadata cache entry expired for file: {}", fileId);
+            return Optional.empty();
+        }
+        return Optional.of(entry.info());
+    }
+
+    public synchronized void put(FileInfo info) {
+        if (info == null || info.id() == null) {
+            return;
+        }
+        entries.put(info.id(), new Entry(info, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void evict(String fileId) {
+        if (entries.remove(fileId) != null) {
+            logger.debug("Evicted metadata cache entry for file: {}", fileId);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry(FileInfo info, long expiresAt) {}
+}
@@ -0,0 +1,118 @@
+package music.service.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import music.service.model.MediaOperation;
+import music.service.repositories.MediaOperationRepository;
+import music.service.service.DriveBatchClient.BatchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Разбирает outbox отложенных операций с медиафайлами. Обращения к Google Drive
+ * идут вне транзакций запросов; неудачные операции повторяются с экспоненциальной
+ * задержкой.
+ */
+@Component
+public class MediaOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaOutboxWorker.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MediaOperationRepository mediaOperationRepository;
+    private final DriveBatchClient driveBatchClient;
+    private final MediaService mediaService;
+
+    private final int batchSize;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public MediaOutboxWorker(MediaOperationRepository mediaOperationRepository,
+                             DriveBatchClient driveBatchClient,
+                             MediaService mediaService,
+                             @Value("${media.outbox.batch-size:100}") int batchSize,
+                             @Value("${media.outbox.initial-backoff-seconds:10}") long initialBackoffSeconds,
+                             @Value("${media.outbox.max-backoff-seconds:3600}") long maxBackoffSeconds) {
+        this.mediaOperationRepository = mediaOperationRepository;
+        this.driveBatchClient = driveBatchClient;
+        this.mediaService = mediaService;
+        this.batchSize = batchSize;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${media.outbox.poll-ms:5000}")
+    public void drain() {
+        List<MediaOperation> due;
+        do {
+            due = mediaOperationRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(
+                    Instant.now(), PageRequest.of(0, batchSize));
+            if (due.isEmpty()) {
+                return;
+            }
+        } while (processDeletions(due) && due.size() == batchSize);
+    }
+
+    /**
+     * @return {@code false}, если Drive недоступен и разбор стоит отложить до следующего цикла
+     */
+    boolean processDeletions(List<MediaOperation> operations) {
+        List<String> fileIds = operations.stream()
+                .map(MediaOperation::getMediaFileId)
+                .collect(Collectors.toList());
+
+        Map<String, BatchResult> results;
+        try {
+            results = driveBatchClient.deleteFiles(fileIds);
+        } catch (IOException e) {
+            logger.warn("Could not delete {} media files, will retry: {}", fileIds.size(), e.getMessage());
+            operations.forEach(operation -> reschedule(operation, e.getMessage()));
+            return false;
+        }
+
+        int deleted = 0;
+        for (MediaOperation operation : operations) {
+            BatchResult result = results.get(operation.getMediaFileId());
+            if (result != null && result.success()) {
+                mediaOperationRepository.delete(operation);
+                mediaService.forgetFile(operation.getMediaFileId());
+                deleted++;
+            } else {
+                reschedule(operation, result == null ? "no response in batch" : result.error());
+            }
+        }
+        logger.debug("Media outbox: deleted {} of {} files", deleted, operations.size());
+        return true;
+    }
+
+    private void reschedule(MediaOperation operation, String error) {
+        int attempts = operation.getAttempts() + 1;
+        operation.setAttempts(attempts);
+        operation.setLastError(error == null || error.length() <= MAX_ERROR_LENGTH
+                ? error
+                : error.substring(0, MAX_ERROR_LENGTH));
+        operation.setNextAttemptAt(Instant.now().plus(backoff(attempts)));
+        mediaOperationRepository.save(operation);
+        logger.warn("Deleting media file {} failed (attempt {}): {}",
+                operation.getMediaFileId(), attempts, error);
+    }
+
+    Duration backoff(int attempts) {
+        long maxMillis = maxBackoff.toMillis();
+        long delay = initialBackoff.toMillis() << Math.min(attempts - 1, 30);
+        if (delay <= 0 || delay > maxMillis) {
+            delay = maxMillis;
+        }
+        // Половина задержки случайная, чтобы повторы после сбоя Drive не шли одной волной
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+}
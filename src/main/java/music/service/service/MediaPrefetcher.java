@@ -0,0 +1,153 @@
+package music.service.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import music.service.repositories.PlaylistRepository;
+import music.service.service.MediaService.FileInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+
+/**
+ * Фоновая предзагрузка начала следующих треков плейлиста в локальное хранилище,
+ * чтобы переход к следующему треку не ждал первого обращения к Google Drive.
+ */
+@Component
+public class MediaPrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaPrefetcher.class);
+
+    private final PlaylistRepository playlistRepository;
+    private final MediaService mediaService;
+    private final LocalMediaStore localMediaStore;
+
+    private final int trackCount;
+    private final int headBytes;
+    private final long maxInFlightBytes;
+
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    public MediaPrefetcher(PlaylistRepository playlistRepository,
+                           MediaService mediaService,
+                           LocalMediaStore localMediaStore,
+                           @Value("${media.prefetch.tracks:2}") int trackCount,
+                           @Value("${media.prefetch.head-bytes:262144}") int headBytes,
+                           @Value("${media.prefetch.concurrency:2}") int concurrency,
+                           @Value("${media.prefetch.max-in-flight-bytes:4194304}") long maxInFlightBytes) {
+        this.playlistRepository = playlistRepository;
+        this.mediaService = mediaService;
+        this.localMediaStore = localMediaStore;
+        this.trackCount = trackCount;
+        this.headBytes = headBytes;
+        this.maxInFlightBytes = maxInFlightBytes;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(64),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "media-prefetch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Вызывается на каждый запрос потока. Предзагрузка запускается, когда трек
+     * начинают слушать с начала или когда клиент дошёл до последней четверти файла.
+     */
+    public void onStreamRequested(String fileId, Long playlistId, String rangeHeader) {
+        if (playlistId == null || trackCount <= 0) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                if (isPlaybackMilestone(fileId, rangeHeader)) {
+                    prefetchFollowing(fileId, playlistId);
+                }
+            } catch (Exception e) {
+                logger.debug("Prefetch after {} in playlist {} skipped: {}", fileId, playlistId, e.getMessage());
+            }
+        });
+    }
+
+    private boolean isPlaybackMilestone(String fileId, String rangeHeader) throws IOException {
+        if (rangeHeader == null) {
+            return true;
+        }
+        List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+        if (ranges.isEmpty()) {
+            return true;
+        }
+        FileInfo fileInfo = mediaService.getFileInfo(fileId);
+        if (fileInfo.size() == null) {
+            return false;
+        }
+        long start = ranges.get(0).getRangeStart(fileInfo.size());
+        return start == 0 || start >= fileInfo.size() * 3 / 4;
+    }
+
+    private void prefetchFollowing(String fileId, Long playlistId) throws IOException {
+        List<String> order = playlistRepository.findMediaFileIdsByPlaylistId(playlistId);
+        int position = order.indexOf(fileId);
+        if (position < 0) {
+            return;
+        }
+        List<String> following = order.stream()
+                .skip(position + 1L)
+                .limit(trackCount)
+                .filter(next -> !localMediaStore.hasPrefix(next, headBytes))
+                .collect(Collectors.toList());
+        if (following.isEmpty()) {
+            return;
+        }
+        mediaService.getFileInfos(following);
+        following.forEach(next -> executor.execute(() -> warmHead(next)));
+    }
+
+    private void warmHead(String fileId) {
+        if (localMediaStore.hasPrefix(fileId, headBytes) || !inFlight.add(fileId)) {
+            return;
+        }
+        if (inFlightBytes.addAndGet(headBytes) > maxInFlightBytes) {
+            inFlightBytes.addAndGet(-headBytes);
+            inFlight.remove(fileId);
+            logger.debug("Prefetch budget exhausted, skipping {}", fileId);
+            return;
+        }
+        try {
+            FileInfo fileInfo = mediaService.getFileInfo(fileId);
+            long length = fileInfo.size() == null ? headBytes : Math.min(headBytes, fileInfo.size());
+            if (length <= 0) {
+                return;
+            }
+            byte[] head = mediaService.downloadRange(fileId, 0, length - 1);
+            localMediaStore.storePrefix(fileId, head, fileInfo.size());
+            logger.debug("Prefetched {} bytes of media file {}", head.length, fileId);
+        } catch (IOException e) {
+            logger.warn("Could not prefetch media file {}: {}", fileId, e.getMessage());
+        } finally {
+            inFlightBytes.addAndGet(-headBytes);
+            inFlight.remove(fileId);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
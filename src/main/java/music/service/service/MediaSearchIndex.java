@@ -0,0 +1,161 @@
+package music.service.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import music.service.service.MediaService.FileInfo;
+import org.springframework.stereotype.Component;
+
+/**
+ * Локальный инвертированный индекс медиафайлов по токенам имени и MIME-типа.
+ * Поиск идёт по префиксам токенов, поэтому «beat» найдёт «Beatles - Help.mp3».
+ */
+@Component
+public class MediaSearchIndex {
+
+    private static final String TOKEN_SEPARATOR = "[^\\p{L}\\p{N}]+";
+
+    private final Map<String, FileInfo> documents = new HashMap<>();
+    private final Map<String, Set<String>> documentTokens = new HashMap<>();
+    private final NavigableMap<String, Set<String>> postings = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public void put(FileInfo fileInfo) {
+        if (fileInfo == null || fileInfo.id() == null) {
+            return;
+        }
+        Set<String> tokens = new HashSet<>(tokenize(fileInfo.name()));
+        tokens.addAll(tokenize(fileInfo.mimeType()));
+
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(fileInfo.id());
+            documents.put(fileInfo.id(), fileInfo);
+            documentTokens.put(fileInfo.id(), tokens);
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, key -> new HashSet<>()).add(fileInfo.id());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String fileId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(fileId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<FileInfo> search(String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<String> matches = null;
+            for (String token : queryTokens) {
+                Set<String> tokenMatches = matchPrefix(token);
+                if (matches == null) {
+                    matches = tokenMatches;
+                } else {
+                    matches.retainAll(tokenMatches);
+                }
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<FileInfo> result = new ArrayList<>(matches.size());
+            for (String id : matches) {
+                result.add(documents.get(id));
+            }
+            result.sort(Comparator.comparing(FileInfo::name, Comparator.nullsLast(String::compareToIgnoreCase)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            documentTokens.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        this.ready = true;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<String> matchPrefix(String prefix) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Set<String> postingList : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            ids.addAll(postingList);
+        }
+        return ids;
+    }
+
+    private void removeUnlocked(String fileId) {
+        documents.remove(fileId);
+        Set<String> tokens = documentTokens.remove(fileId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Set<String> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(fileId);
+                if (ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split(TOKEN_SEPARATOR)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,102 @@
+package music.service.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import music.service.service.MediaService.ChangesPage;
+import music.service.service.MediaService.FileInfo;
+import music.service.service.MediaService.MediaChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MediaSearchIndexUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaSearchIndexUpdater.class);
+
+    private final MediaService mediaService;
+    private final MediaSearchIndex searchIndex;
+
+    private final AtomicBoolean seeding = new AtomicBoolean();
+    private volatile String changesPageToken;
+
+    public MediaSearchIndexUpdater(MediaService mediaService, MediaSearchIndex searchIndex) {
+        this.mediaService = mediaService;
+        this.searchIndex = searchIndex;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedIndex() {
+        seed();
+    }
+
+    /**
+     * Полностью заполняет индекс. Неудачная попытка повторяется на расписании
+     * {@link #applyChanges()}, пока индекс не станет готов.
+     */
+    boolean seed() {
+        if (searchIndex.isReady() || !seeding.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            String startToken = mediaService.getChangesStartToken();
+            searchIndex.clear();
+            try (Stream<FileInfo> files = mediaService.streamAllFiles()) {
+                files.forEach(searchIndex::put);
+            }
+            changesPageToken = startToken;
+            searchIndex.markReady();
+            logger.info("Media search index seeded with {} files", searchIndex.size());
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Failed to seed media search index, search falls back to Drive", e);
+            return false;
+        } finally {
+            seeding.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${media.search-index.changes-poll-ms:60000}")
+    public void applyChanges() {
+        String pageToken = changesPageToken;
+        if (pageToken == null) {
+            seed();
+            return;
+        }
+        try {
+            int applied = 0;
+            while (pageToken != null) {
+                ChangesPage page = mediaService.listChanges(pageToken);
+                for (MediaChange change : page.changes()) {
+                    if (change.removed()) {
+                        searchIndex.remove(change.fileId());
+                    } else {
+                        searchIndex.put(change.fileInfo());
+                    }
+                    applied++;
+                }
+                if (page.newStartPageToken() != null) {
+                    changesPageToken = page.newStartPageToken();
+                    pageToken = null;
+                } else {
+                    pageToken = page.nextPageToken();
+                    if (pageToken != null) {
+                        changesPageToken = pageToken;
+                    }
+                }
+            }
+            if (applied > 0) {
+                logger.debug("Applied {} Drive changes to media search index", applied);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read Drive changes feed: {}", e.getMessage());
+        }
+    }
+}
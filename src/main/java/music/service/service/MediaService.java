@@ -1,126 +1,655 @@
 package music.service.service;
 
+import com.google.api.client.http.InputStreamContent;
 import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Change;
+import com.google.api.services.drive.model.ChangeList;
 import com.google.api.services.drive.model.File;
+import com.google.api.services.drive.model.FileList;
+import music.service.exception.ValidationException;
+import music.service.model.MediaBlob;
+import music.service.model.MediaOperation;
+import music.service.repositories.MediaBlobRepository;
+import music.service.repositories.MediaOperationRepository;
+import music.service.service.DriveCallGuard.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class MediaService {
 
+    private static final Logger logger = LoggerFactory.getLogger(MediaService.class);
+    private static final String FILE_FIELDS = "id, name, webViewLink, mimeType, size";
+    private static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+    private static final String MEDIA_QUERY =
+            "mimeType contains 'image/' or mimeType contains 'video/' or mimeType contains 'audio/'";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final long MAX_BUFFERED_RANGE = 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     private final Drive googleDriveService;
+    private final MediaMetadataCache metadataCache;
+    private final MediaBlobRepository mediaBlobRepository;
+    private final MediaSearchIndex searchIndex;
+    private final LocalMediaStore localMediaStore;
+    private final DriveBatchClient driveBatchClient;
+    private final MediaOperationRepository mediaOperationRepository;
+    private final DriveCallGuard driveCallGuard;
+    private final ImageVariantStore imageVariantStore;
+    private final SharedMediaDownloads sharedDownloads;
+    private final HotSegmentCache hotSegments;
+    private final TransactionTemplate transactionTemplate;
 
-    public MediaService(Drive googleDriveService) {
+    public MediaService(Drive googleDriveService,
+                        MediaMetadataCache metadataCache,
+                        MediaBlobRepository mediaBlobRepository,
+                        MediaSearchIndex searchIndex,
+                        LocalMediaStore localMediaStore,
+                        DriveBatchClient driveBatchClient,
+                        MediaOperationRepository mediaOperationRepository,
+                        DriveCallGuard driveCallGuard,
+                        ImageVariantStore imageVariantStore,
+                        SharedMediaDownloads sharedDownloads,
+                        HotSegmentCache hotSegments,
+                        PlatformTransactionManager transactionManager) {
         this.googleDriveService = googleDriveService;
+        this.metadataCache = metadataCache;
+        this.mediaBlobRepository = mediaBlobRepository;
+        this.searchIndex = searchIndex;
+        this.localMediaStore = localMediaStore;
+        this.driveBatchClient = driveBatchClient;
+        this.mediaOperationRepository = mediaOperationRepository;
+        this.driveCallGuard = driveCallGuard;
+        this.imageVariantStore = imageVariantStore;
+        this.sharedDownloads = sharedDownloads;
+        this.hotSegments = hotSegments;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public String uploadMedia(MultipartFile file) {
-        try {
+        return uploadMedia(file, null);
+    }
+
+    public String uploadMedia(MultipartFile file, Set<String> allowedTypes) {
+        try (MediaIngestStream ingest = MediaIngestStream.open(
+                file.getInputStream(), file.getOriginalFilename(), CONTENT_HASH_ALGORITHM)) {
+            String detectedType = ingest.getDetectedType();
+            if (allowedTypes != null && !allowedTypes.contains(detectedType)) {
+                throw new ValidationException("Недопустимый тип файла: " + detectedType);
+            }
+
             File fileMetadata = new File();
             fileMetadata.setName(file.getOriginalFilename());
-            InputStream fileStream = file.getInputStream();
+            InputStreamContent content = new InputStreamContent(detectedType, ingest);
+            content.setLength(file.getSize());
 
-            File uploadedFile = googleDriveService.files().create(
-                    fileMetadata,
-                    new com.google.api.client.http.InputStreamContent(file.getContentType(), fileStream)
-            ).setFields("id, webViewLink").execute();
+            File uploadedFile = driveCallGuard.call(Operation.UPLOAD, () ->
+                    googleDriveService.files().create(fileMetadata, content)
+                            .setFields(FILE_FIELDS)
+                            .execute());
 
-            return uploadedFile.getId();
+            return registerUpload(ingest.getContentHash(), uploadedFile);
+        } catch (ValidationException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка загрузки файла", e);
         }
     }
 
-    public List<FileInfo> listFiles() throws IOException {
-        List<File> files = googleDriveService.files().list()
-                .setQ("mimeType contains 'image/' or mimeType contains 'video/' or mimeType contains 'audio/'")
-                .setFields("files(id, name, webViewLink, mimeType, size)")
-                .execute()
-                .getFiles();
+    /**
+     * Учитывает загруженный файл в транзакции вызывающего кода: если она откатится,
+     * не останется и записи о файле. Если такое содержимое уже есть, счётчик ссылок
+     * увеличивается атомарно, а новая копия ставится в очередь на удаление.
+     */
+    private String registerUpload(String contentHash, File uploadedFile) {
+        return transactionTemplate.execute(status -> {
+            Optional<String> duplicateOf = reuseExisting(contentHash);
+            if (duplicateOf.isEmpty() && mediaBlobRepository.insertIfAbsent(
+                    contentHash, uploadedFile.getId(), uploadedFile.getSize()) == 0) {
+                // Параллельная первая загрузка того же содержимого успела раньше
+                duplicateOf = reuseExisting(contentHash);
+            }
+            if (duplicateOf.isPresent()) {
+                logger.info("Duplicate upload {} matches media file {}, reusing it",
+                        uploadedFile.getId(), duplicateOf.get());
+                scheduleDeletion(uploadedFile.getId());
+                return duplicateOf.get();
+            }
+
+            FileInfo fileInfo = toFileInfo(uploadedFile);
+            metadataCache.put(fileInfo);
+            searchIndex.put(fileInfo);
+            return uploadedFile.getId();
+        });
+    }
+
+    private Optional<String> reuseExisting(String contentHash) {
+        if (mediaBlobRepository.incrementReferences(contentHash) == 0) {
+            return Optional.empty();
+        }
+        return mediaBlobRepository.findByContentHash(contentHash).map(MediaBlob::getMediaFileId);
+    }
+
+    public void releaseMedia(String fileId) {
+        if (fileId == null) {
+            return;
+        }
+        releaseMediaBatch(List.of(fileId));
+    }
+
+    public void releaseMediaBatch(Collection<String> fileIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<String> unreferenced = new LinkedHashSet<>();
+            // Один файл может быть у нескольких удаляемых треков: ссылка снимается за каждый
+            for (String fileId : fileIds) {
+                if (fileId == null) {
+                    continue;
+                }
+                if (mediaBlobRepository.decrementSharedReferences(fileId) > 0) {
+                    logger.debug("Media file {} is still referenced", fileId);
+                    continue;
+                }
+                // Последняя ссылка или файл, загруженный до учёта ссылок
+                mediaBlobRepository.deleteLastReference(fileId);
+                unreferenced.add(fileId);
+            }
+            unreferenced.forEach(this::scheduleDeletion);
+        });
+    }
+
+    /**
+     * Забывает локальные копии и метаданные файла после его удаления из Google Drive.
+     */
+    public void forgetFile(String fileId) {
+        metadataCache.evict(fileId);
+        searchIndex.remove(fileId);
+        localMediaStore.evict(fileId);
+        imageVariantStore.evict(fileId);
+        hotSegments.evict(fileId);
+    }
+
+    /**
+     * Записывает удаление в outbox в текущей транзакции; сам вызов Drive выполняет
+     * {@link MediaOutboxWorker} после коммита.
+     */
+    private void scheduleDeletion(String fileId) {
+        mediaOperationRepository.save(MediaOperation.delete(fileId));
+    }
 
-        return files.stream()
-                .map(file -> new FileInfo(
-                        file.getId(),
-                        file.getName(),
-                        file.getWebViewLink(),
-                        file.getMimeType(),
-                        file.getSize()
-                ))
+    public FilePage listFiles(String pageToken, int pageSize) throws IOException {
+        FileList fileList = driveCallGuard.call(Operation.LIST, () ->
+                googleDriveService.files().list()
+                        .setQ(MEDIA_QUERY)
+                        .setPageSize(Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)))
+                        .setPageToken(pageToken)
+                        .setFields("nextPageToken, files(" + FILE_FIELDS + ")")
+                        .execute());
+
+        List<FileInfo> files = fileList.getFiles() == null ? List.of() : fileList.getFiles().stream()
+                .map(this::toFileInfo)
                 .collect(Collectors.toList());
+        files.forEach(metadataCache::put);
+        return new FilePage(files, fileList.getNextPageToken());
+    }
+
+    public Stream<FileInfo> streamAllFiles() {
+        Iterator<FileInfo> iterator = new Iterator<>() {
+            private Iterator<FileInfo> current = Collections.emptyIterator();
+            private String nextPageToken;
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && !lastPage) {
+                    try {
+                        FilePage page = listFiles(nextPageToken, MAX_PAGE_SIZE);
+                        current = page.files().iterator();
+                        nextPageToken = page.nextPageToken();
+                        lastPage = nextPageToken == null;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public FileInfo next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     public byte[] downloadFile(String fileId) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        googleDriveService.files().get(fileId).executeMediaAndDownloadTo(outputStream);
-        return outputStream.toByteArray();
+        try (InputStream content = openContent(fileId, 0)) {
+            return content.readAllBytes();
+        }
+    }
+
+    /**
+     * Поток содержимого файла с позиции {@code offset}: из полной локальной копии,
+     * если она есть, иначе через общее для всех запросов скачивание из Google Drive.
+     */
+    public InputStream openContent(String fileId, long offset) throws IOException {
+        Optional<LocalMediaStore.StoredMedia> stored = localMediaStore.get(fileId);
+        if (stored.isPresent() && stored.get().isComplete()) {
+            try {
+                InputStream local = Files.newInputStream(stored.get().path());
+                local.skipNBytes(offset);
+                return local;
+            } catch (NoSuchFileException e) {
+                logger.debug("Local copy of {} was evicted, downloading", fileId);
+            }
+        }
+        Long fileSize = getFileInfo(fileId).size();
+        return sharedDownloads.open(fileId, offset, fileSize);
     }
 
     public FileInfo getFileInfo(String fileId) throws IOException {
-        File file = googleDriveService.files().get(fileId).execute();
-        return new FileInfo(file.getId(), file.getName(), file.getWebViewLink(), file.getMimeType(), file.getSize());
+        Optional<FileInfo> cached = metadataCache.get(fileId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        File file = driveCallGuard.call(Operation.METADATA, () ->
+                googleDriveService.files().get(fileId)
+                        .setFields(FILE_FIELDS)
+                        .execute());
+        FileInfo fileInfo = toFileInfo(file);
+        metadataCache.put(fileInfo);
+        return fileInfo;
+    }
+
+    public Map<String, FileInfo> getFileInfos(Collection<String> fileIds) throws IOException {
+        Map<String, FileInfo> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String fileId : fileIds) {
+            Optional<FileInfo> cached = metadataCache.get(fileId);
+            if (cached.isPresent()) {
+                result.put(fileId, cached.get());
+            } else {
+                missing.add(fileId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        for (Map.Entry<String, File> entry : driveBatchClient.getFiles(missing, FILE_FIELDS).entrySet()) {
+            FileInfo fileInfo = toFileInfo(entry.getValue());
+            metadataCache.put(fileInfo);
+            result.put(entry.getKey(), fileInfo);
+        }
+        return result;
     }
 
     public List<FileInfo> searchFiles(String query) throws IOException {
-        List<File> files = googleDriveService.files().list()
-                .setQ("name contains '" + query + "' and (mimeType contains 'image/' or mimeType contains 'video/' or mimeType contains 'audio/')")
-                .setFields("files(id, name, webViewLink, mimeType, size)")
-                .execute()
-                .getFiles();
-
-        return files.stream()
-                .map(file -> new FileInfo(
-                        file.getId(),
-                        file.getName(),
-                        file.getWebViewLink(),
-                        file.getMimeType(),
-                        file.getSize()
-                ))
+        if (searchIndex.isReady()) {
+            return searchIndex.search(query);
+        }
+
+        logger.debug("Search index is not ready yet, querying Drive for: {}", query);
+        List<File> files = driveCallGuard.call(Operation.LIST, () ->
+                googleDriveService.files().list()
+                        .setQ("name contains '" + escapeQueryValue(query) + "' and (" + MEDIA_QUERY + ")")
+                        .setFields("files(" + FILE_FIELDS + ")")
+                        .execute()
+                        .getFiles());
+
+        List<FileInfo> result = files.stream()
+                .map(this::toFileInfo)
                 .collect(Collectors.toList());
+        result.forEach(metadataCache::put);
+        return result;
+    }
+
+    public String getChangesStartToken() throws IOException {
+        return driveCallGuard.call(Operation.METADATA, () ->
+                googleDriveService.changes().getStartPageToken().execute().getStartPageToken());
+    }
+
+    public ChangesPage listChanges(String pageToken) throws IOException {
+        ChangeList changeList = driveCallGuard.call(Operation.LIST, () ->
+                googleDriveService.changes().list(pageToken)
+                        .setPageSize(MAX_PAGE_SIZE)
+                        .setFields("nextPageToken, newStartPageToken, "
+                                + "changes(fileId, removed, file(" + FILE_FIELDS + ", trashed))")
+                        .execute());
+
+        List<MediaChange> changes = new ArrayList<>();
+        if (changeList.getChanges() != null) {
+            for (Change change : changeList.getChanges()) {
+                File file = change.getFile();
+                boolean removed = Boolean.TRUE.equals(change.getRemoved())
+                        || file == null
+                        || Boolean.TRUE.equals(file.getTrashed())
+                        || !isMediaType(file.getMimeType());
+                FileInfo fileInfo = removed ? null : toFileInfo(file);
+                if (removed) {
+                    metadataCache.evict(change.getFileId());
+                } else {
+                    metadataCache.put(fileInfo);
+                }
+                changes.add(new MediaChange(change.getFileId(), removed, fileInfo));
+            }
+        }
+        return new ChangesPage(changes, changeList.getNextPageToken(), changeList.getNewStartPageToken());
+    }
+
+    private static boolean isMediaType(String mimeType) {
+        return mimeType != null && (mimeType.startsWith("image/")
+                || mimeType.startsWith("video/")
+                || mimeType.startsWith("audio/"));
+    }
+
+    private static String escapeQueryValue(String value) {
+        return value.replace("\\", "\\\\").replace("'", "\\'");
+    }
+
+    public byte[] readRange(String fileId, long start, long endInclusive) throws IOException {
+        Optional<byte[]> hot = hotSegments.read(fileId, start, endInclusive);
+        if (hot.isPresent() && hot.get().length == endInclusive - start + 1) {
+            return hot.get();
+        }
+        Optional<byte[]> local = localMediaStore.readRange(fileId, start, endInclusive);
+        if (local.isPresent()) {
+            return local.get();
+        }
+        Optional<byte[]> arrived = sharedDownloads.readArrived(fileId, start, endInclusive);
+        if (arrived.isPresent()) {
+            return arrived.get();
+        }
+        return downloadRange(fileId, start, endInclusive);
+    }
+
+    public byte[] downloadRange(String fileId, long start, long endInclusive) throws IOException {
+        return driveCallGuard.call(Operation.DOWNLOAD, () -> {
+            Drive.Files.Get request = googleDriveService.files().get(fileId);
+            request.getRequestHeaders().setRange("bytes=" + start + "-" + endInclusive);
+            try (InputStream content = request.executeMediaAsInputStream()) {
+                return content.readAllBytes();
+            }
+        });
     }
 
-    public ResponseEntity<byte[]> streamFile(String fileId, String rangeHeader) throws IOException {
-        byte[] fileContent = downloadFile(fileId);
+    /**
+     * Отдаёт файл целиком или диапазонами по RFC 7233: {@code bytes=a-b}, открытые
+     * {@code bytes=a-}, суффиксные {@code bytes=-n} и несколько диапазонов сразу
+     * (ответ {@code multipart/byteranges}). Некорректный заголовок Range игнорируется.
+     */
+    public ResponseEntity<StreamingResponseBody> streamFile(String fileId, String rangeHeader) throws IOException {
         FileInfo fileInfo = getFileInfo(fileId);
+        MediaType contentType = MediaType.parseMediaType(fileInfo.mimeType());
+        List<HttpRange> requested = parseRanges(rangeHeader);
+
+        if (requested.isEmpty() || fileInfo.size() == null) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(contentType)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (fileInfo.size() != null) {
+                response.contentLength(fileInfo.size());
+            }
+            InputStream content = openContent(fileId, 0);
+            return response.body(outputStream -> {
+                try (content) {
+                    content.transferTo(outputStream);
+                }
+            });
+        }
 
-        if (rangeHeader == null) {
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(fileInfo.mimeType()))
-                    .header("Accept-Ranges", "bytes")
-                    .body(fileContent);
+        long fileSize = fileInfo.size();
+        List<ByteRange> ranges = resolveRanges(requested, fileSize);
+        if (ranges.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(null);
         }
 
-        String[] ranges = rangeHeader.replace("bytes=", "").split("-");
-        int start = Integer.parseInt(ranges[0]);
-        int end = ranges.length > 1 ? Integer.parseInt(ranges[1]) : fileContent.length - 1;
-        int chunkSize = end - start + 1;
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            byte[] head = readHotHead(fileId, fileSize, range);
+            long restStart = range.start() + head.length;
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .contentType(contentType)
+                    .contentLength(range.end() - range.start() + 1)
+                    .header(HttpHeaders.CONTENT_RANGE, range.contentRange(fileSize))
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(outputStream -> writeRange(fileId, head, restStart, range.end(), outputStream));
+        }
+
+        // Части пишутся прямо в ответ и читаются так же, как одиночный диапазон:
+        // в памяти не больше MAX_BUFFERED_RANGE на часть, сколько бы частей ни было
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] headers = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(fileSize) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(headers);
+            contentLength += headers.length + range.end() - range.start() + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .contentType(new MediaType("multipart", "byteranges", Map.of("boundary", boundary)))
+                .contentLength(contentLength)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(outputStream -> {
+                    for (int i = 0; i < ranges.size(); i++) {
+                        ByteRange range = ranges.get(i);
+                        outputStream.write(partHeaders.get(i));
+                        writeRange(fileId, new byte[0], range.start(), range.end(), outputStream);
+                    }
+                    outputStream.write(closing);
+                });
+    }
+
+    /**
+     * Начало диапазона из кеша горячих сегментов. Для файла, ставшего популярным,
+     * начало загружается в кеш одним запросом; иначе возвращается пустой массив.
+     */
+    private byte[] readHotHead(String fileId, long fileSize, ByteRange range) throws IOException {
+        long headBytes = Math.min(hotSegments.getHeadBytes(), fileSize);
+        if (range.start() >= headBytes) {
+            return new byte[0];
+        }
+        long headEnd = Math.min(range.end(), headBytes - 1);
+        Optional<byte[]> cached = hotSegments.read(fileId, range.start(), headEnd);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        if (!hotSegments.recordMiss(fileId)) {
+            return new byte[0];
+        }
+        byte[] head = readRange(fileId, 0, headBytes - 1);
+        if (head.length != headBytes) {
+            // Метаданные о размере устарели или файл обрезан: неполное начало не кешируем,
+            // а отдаём только реально прочитанные байты, остальное догрузит writeRange
+            logger.warn("Media file {} returned {} of {} head bytes", fileId, head.length, headBytes);
+            if (range.start() >= head.length) {
+                return new byte[0];
+            }
+            return Arrays.copyOfRange(head, (int) range.start(), (int) Math.min(headEnd + 1, head.length));
+        }
+        hotSegments.putHead(fileId, head);
+        return Arrays.copyOfRange(head, (int) range.start(), (int) headEnd + 1);
+    }
 
-        byte[] partialContent = new byte[chunkSize];
-        System.arraycopy(fileContent, start, partialContent, 0, chunkSize);
+    /**
+     * Пишет уже известное начало диапазона и догружает остаток. Большой остаток
+     * читается через общее скачивание, которое запускается до отправки начала,
+     * чтобы загрузка шла, пока клиент получает первые байты.
+     */
+    private void writeRange(String fileId, byte[] head, long restStart, long endInclusive,
+                            OutputStream outputStream) throws IOException {
+        long remaining = endInclusive - restStart + 1;
+        if (remaining <= 0) {
+            outputStream.write(head);
+            return;
+        }
+        if (remaining <= MAX_BUFFERED_RANGE) {
+            outputStream.write(head);
+            outputStream.flush();
+            outputStream.write(readRange(fileId, restStart, endInclusive));
+            return;
+        }
+        try (InputStream content = openContent(fileId, restStart)) {
+            outputStream.write(head);
+            outputStream.flush();
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            while (remaining > 0) {
+                int read = content.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Media file " + fileId + " ended " + remaining + " bytes early");
+                }
+                outputStream.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
 
-        return ResponseEntity.status(206)
+    /**
+     * Ответ на HEAD: длина и тип берутся из метаданных, содержимое не скачивается.
+     */
+    public ResponseEntity<Void> describeFile(String fileId) throws IOException {
+        FileInfo fileInfo = getFileInfo(fileId);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType(fileInfo.mimeType()))
-                .header("Content-Range", "bytes " + start + "-" + end + "/" + fileContent.length)
-                .header("Accept-Ranges", "bytes")
-                .body(partialContent);
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (fileInfo.size() != null) {
+            response.contentLength(fileInfo.size());
+        }
+        return response.build();
+    }
+
+    private static List<HttpRange> parseRanges(String rangeHeader) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring invalid Range header '{}': {}", rangeHeader, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Отбрасывает невыполнимые диапазоны и сливает пересекающиеся и соседние,
+     * чтобы один и тот же участок файла не читался дважды.
+     */
+    static List<ByteRange> resolveRanges(List<HttpRange> requested, long fileSize) {
+        List<ByteRange> satisfiable = new ArrayList<>();
+        for (HttpRange range : requested) {
+            long start = range.getRangeStart(fileSize);
+            long end = range.getRangeEnd(fileSize);
+            if (start < fileSize && start <= end) {
+                satisfiable.add(new ByteRange(start, end));
+            }
+        }
+        satisfiable.sort(Comparator.comparingLong(ByteRange::start));
+
+        List<ByteRange> merged = new ArrayList<>();
+        for (ByteRange range : satisfiable) {
+            ByteRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range.start() <= last.end() + 1) {
+                merged.set(merged.size() - 1, new ByteRange(last.start(), Math.max(last.end(), range.end())));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
     }
 
     public void deleteFile(String fileId) {
         try {
-            googleDriveService.files().delete(fileId).execute();
+            driveCallGuard.call(Operation.DELETE, () -> googleDriveService.files().delete(fileId).execute());
+            forgetFile(fileId);
+            mediaBlobRepository.findByMediaFileId(fileId).ifPresent(mediaBlobRepository::delete);
         } catch (IOException e) {
             System.err.println("Ошибка при удалении файла: " + e.getMessage());
             throw new RuntimeException("Не удалось удалить файл: " + fileId, e);
         }
     }
 
+    private FileInfo toFileInfo(File file) {
+        return new FileInfo(
+                file.getId(),
+                file.getName(),
+                file.getWebViewLink(),
+                file.getMimeType(),
+                file.getSize()
+        );
+    }
+
+    record ByteRange(long start, long end) {
+
+        String contentRange(long fileSize) {
+            return "bytes " + start + "-" + end + "/" + fileSize;
+        }
+    }
+
+    public record MediaChange(
+            String fileId,
+            boolean removed,
+            FileInfo fileInfo) {}
+
+    public record ChangesPage(
+            List<MediaChange> changes,
+            String nextPageToken,
+            String newStartPageToken) {}
+
+    public record FilePage(
+            List<FileInfo> files,
+            String nextPageToken) {}
+
     public record FileInfo(
             String id,
             String name,
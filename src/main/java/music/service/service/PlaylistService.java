@@ -1,11 +1,13 @@
 package music.service.service;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import javax.transaction.Transactional;
 import music.service.config.CacheConfig;
 import music.service.dto.*;
 import music.service.exception.ResourceNotFoundException;
+import music.service.exception.ValidationException;
 import music.service.model.Playlist;
 import music.service.model.Track;
 import music.service.model.User;
@@ -22,6 +24,8 @@ import org.springframework.stereotype.Service;
 @Service
 @Transactional
 public class PlaylistService {
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final PlaylistRepository playlistRepository;
     private final TrackRepository trackRepository;
     private final UserRepository userRepository;
@@ -38,7 +42,7 @@ public class PlaylistService {
         this.cacheService = cacheService;
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     public Page<Playlist> getAllPlaylists(
             String user, String name, int page, int size, String sortBy) {
         String cacheKey = buildPlaylistsCacheKey(user, name, page, size, sortBy);
@@ -53,6 +57,25 @@ public class PlaylistService {
         return playlists;
     }
 
+    /**
+     * Страница плейлистов после курсора, отсортированная по {@code name} или {@code id}.
+     */
+    @ReadOnlyTransactional
+    public CursorPage<PlaylistResponse> getPlaylistsAfter(String cursor, int size, String sortBy) {
+        if (!"name".equals(sortBy) && !"id".equals(sortBy)) {
+            throw new ValidationException("Неподдерживаемая сортировка: " + sortBy);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor, sortBy);
+
+        List<Playlist> rows = "name".equals(sortBy)
+                ? playlistRepository.findPageAfterName(after.value(), after.id(), pageSize + 1)
+                : playlistRepository.findPageAfterId(after.id(), pageSize + 1);
+        return KeysetCursor.page(rows, pageSize, sortBy,
+                "name".equals(sortBy) ? Playlist::getName : playlist -> "",
+                Playlist::getId, this::mapToPlaylistResponse);
+    }
+
     @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
     Page<Playlist> fetchPlaylistsFromDB(
             String user, String name, Pageable pageable) {
@@ -77,6 +100,7 @@ public class PlaylistService {
         );
     }
 
+    @ReadOnlyTransactional
     public Optional<Playlist> getPlaylistById(Long id) {
         return playlistRepository.findById(id);
     }
@@ -0,0 +1,21 @@
+package music.service.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Read-only транзакция для методов чтения. {@code javax.transaction.Transactional},
+ * которым размечены сервисы, не умеет помечать транзакцию как read-only, а именно по
+ * этому признаку {@link music.service.config.ReplicaRoutingDataSource} отправляет
+ * запросы на реплику.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+}
@@ -0,0 +1,564 @@
+package music.service.service;
+
+import com.google.api.services.drive.Drive;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import music.service.service.DriveCallGuard.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Объединяет одновременные скачивания одного файла: из Google Drive файл читается
+ * один раз во временный файл, а все читатели, включая подключившихся позже,
+ * получают байты по мере их поступления. Готовый файл передаётся в
+ * {@link LocalMediaStore}.
+ * <p>
+ * Файл известного размера делится на диапазоны, которые скачиваются параллельно
+ * в заранее выделенный файл по своим смещениям. Число соединений ограничено
+ * и для одного файла, и общим пулом потоков.
+ */
+@Component
+public class SharedMediaDownloads {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedMediaDownloads.class);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int RANGE_ATTEMPTS = 3;
+
+    private final Drive googleDriveService;
+    private final DriveCallGuard driveCallGuard;
+    private final LocalMediaStore localMediaStore;
+    private final long stallTimeoutMillis;
+    private final long rangeBytes;
+    private final int perFileConnections;
+
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, SharedDownload> inFlight = new ConcurrentHashMap<>();
+
+    public SharedMediaDownloads(Drive googleDriveService,
+                                DriveCallGuard driveCallGuard,
+                                LocalMediaStore localMediaStore,
+                                @Value("${media.shared-download.max-concurrent:8}") int maxConcurrent,
+                                @Value("${media.shared-download.stall-timeout-ms:30000}") long stallTimeoutMillis,
+                                @Value("${media.shared-download.range-bytes:4194304}") long rangeBytes,
+                                @Value("${media.shared-download.per-file-connections:4}") int perFileConnections) {
+        this.googleDriveService = googleDriveService;
+        this.driveCallGuard = driveCallGuard;
+        this.localMediaStore = localMediaStore;
+        this.stallTimeoutMillis = stallTimeoutMillis;
+        this.rangeBytes = Math.max(CHUNK_SIZE, rangeBytes);
+        this.perFileConnections = Math.max(1, perFileConnections);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "media-download-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Открывает поток чтения файла с позиции {@code offset}. Если файл уже скачивается,
+     * читатель подключается к текущему скачиванию, иначе скачивание запускается.
+     */
+    public InputStream open(String fileId, long offset, Long fileSize) throws IOException {
+        while (true) {
+            SharedDownload existing = inFlight.get(fileId);
+            if (existing != null) {
+                if (existing.retain()) {
+                    logger.debug("Joined in-flight download of {} at offset {} of {} bytes",
+                            fileId, offset, fileSize);
+                    return existing.newReader(offset);
+                }
+                inFlight.remove(fileId, existing);
+                continue;
+            }
+
+            SharedDownload fresh = new SharedDownload(fileId, fileSize, localMediaStore.newTempFile());
+            if (inFlight.putIfAbsent(fileId, fresh) == null) {
+                start(fresh);
+                return fresh.newReader(offset);
+            }
+            fresh.discard();
+        }
+    }
+
+    /**
+     * Возвращает диапазон из идущего скачивания, если эти байты уже получены.
+     */
+    public Optional<byte[]> readArrived(String fileId, long start, long endInclusive) throws IOException {
+        SharedDownload download = inFlight.get(fileId);
+        if (download == null || !download.covers(start, endInclusive) || !download.retain()) {
+            return Optional.empty();
+        }
+        try (InputStream reader = download.newReader(start)) {
+            return Optional.of(reader.readNBytes((int) (endInclusive - start + 1)));
+        }
+    }
+
+    private void start(SharedDownload download) {
+        for (int worker = 0; worker < download.workers; worker++) {
+            try {
+                executor.execute(() -> work(download));
+            } catch (RejectedExecutionException e) {
+                download.fail(new IOException("Media download executor is shut down"));
+                if (download.workerDone()) {
+                    finish(download);
+                }
+            }
+        }
+    }
+
+    private void work(SharedDownload download) {
+        try {
+            int index;
+            while ((index = download.nextRange()) >= 0) {
+                fetchRange(download, index);
+            }
+        } catch (IOException e) {
+            logger.warn("Shared download of {} failed: {}", download.fileId, e.getMessage());
+            download.fail(e);
+        } finally {
+            if (download.workerDone()) {
+                finish(download);
+            }
+        }
+    }
+
+    /**
+     * Скачивает один диапазон. Тело ответа читается внутри вызова {@link DriveCallGuard},
+     * поэтому медленная передача занимает слот bulkhead, ограничена таймаутом передачи
+     * и учитывается предохранителем. Повтор после обрыва или короткого ответа
+     * продолжает диапазон с первого недостающего байта.
+     */
+    private void fetchRange(SharedDownload download, int index) throws IOException {
+        String fileId = download.fileId;
+        boolean ranged = download.rangeCount() > 1;
+        for (int attempt = 1; ; attempt++) {
+            long end = download.rangeEnd(index);
+            boolean proceed = driveCallGuard.call(Operation.DOWNLOAD, () -> {
+                long start = download.rangeStart(index) + download.filled(index);
+                Drive.Files.Get request = googleDriveService.files().get(fileId);
+                if (ranged || start > 0) {
+                    request.getRequestHeaders().setRange("bytes=" + start + "-" + (ranged ? end : ""));
+                }
+                try (InputStream content = request.executeMediaAsInputStream()) {
+                    byte[] buffer = new byte[CHUNK_SIZE];
+                    int read;
+                    while ((read = content.read(buffer)) >= 0) {
+                        // Вызов, брошенный по таймауту, не должен писать в диапазон наравне с повтором
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("Range " + index + " of " + fileId + " was abandoned");
+                        }
+                        if (!download.append(index, buffer, read)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            });
+            if (!proceed) {
+                logger.debug("Stopped range {} of download of {}", index, fileId);
+                return;
+            }
+
+            if (!download.isSized()) {
+                download.finishUnsized();
+                return;
+            }
+            if (download.isRangeFilled(index)) {
+                return;
+            }
+            if (attempt >= RANGE_ATTEMPTS) {
+                throw new IOException("Range " + index + " of " + fileId + " ended at "
+                        + (download.rangeStart(index) + download.filled(index)) + " instead of " + end);
+            }
+            logger.debug("Range {} of {} ended early on attempt {}, resuming", index, fileId, attempt);
+        }
+    }
+
+    private void finish(SharedDownload download) {
+        String fileId = download.fileId;
+        boolean adopted = false;
+        try {
+            if (download.verifyComplete()) {
+                adopted = localMediaStore.adoptComplete(fileId, download.tempFile, download.size());
+                logger.debug("Shared download of {} finished: {} bytes in {} ranges",
+                        fileId, download.size(), download.rangeCount());
+            }
+        } catch (IOException e) {
+            logger.warn("Could not keep downloaded copy of {}: {}", fileId, e.getMessage());
+        } finally {
+            inFlight.remove(fileId, download);
+            download.keepFile = adopted;
+            download.releaseWorkers();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Состояние одного скачивания: сколько байт получено в каждом диапазоне.
+     * Файл и канал закрываются, когда завершились все потоки скачивания
+     * и ушли все читатели.
+     */
+    private final class SharedDownload {
+
+        private final String fileId;
+        private final Path tempFile;
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+
+        // Long.MAX_VALUE, если размер неизвестен и файл скачивается одним потоком
+        private final long rangeSize;
+        private final long[] filled;
+        private final boolean[] started;
+        private final int workers;
+
+        private Long size;
+        private boolean complete;
+        private boolean abandoned;
+        private IOException failure;
+        private int priorityRange;
+        // Создавший скачивание читатель
+        private int readers = 1;
+        private int activeWorkers;
+        private boolean closed;
+        private volatile boolean keepFile;
+
+        private SharedDownload(String fileId, Long expectedSize, Path tempFile) throws IOException {
+            this.fileId = fileId;
+            this.tempFile = tempFile;
+            this.size = expectedSize;
+            this.file = new RandomAccessFile(tempFile.toFile(), "rw");
+            this.channel = file.getChannel();
+
+            int ranges = 1;
+            if (expectedSize != null) {
+                file.setLength(expectedSize);
+                this.rangeSize = rangeBytes;
+                ranges = (int) Math.max(1, (expectedSize + rangeBytes - 1) / rangeBytes);
+            } else {
+                this.rangeSize = Long.MAX_VALUE;
+            }
+            this.filled = new long[ranges];
+            this.started = new boolean[ranges];
+            this.workers = Math.min(perFileConnections, ranges);
+            this.activeWorkers = workers;
+        }
+
+        int rangeCount() {
+            return filled.length;
+        }
+
+        boolean isSized() {
+            return rangeSize != Long.MAX_VALUE;
+        }
+
+        long rangeStart(int index) {
+            return index * rangeSize;
+        }
+
+        long rangeEnd(int index) {
+            return isSized() ? Math.min(size, rangeStart(index) + rangeSize) - 1 : Long.MAX_VALUE;
+        }
+
+        private int rangeIndex(long position) {
+            return isSized() ? (int) Math.min(position / rangeSize, filled.length - 1) : 0;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        synchronized long filled(int index) {
+            return filled[index];
+        }
+
+        synchronized boolean isRangeFilled(int index) {
+            return rangeStart(index) + filled[index] > rangeEnd(index);
+        }
+
+        synchronized boolean isStopped() {
+            return abandoned || failure != null;
+        }
+
+        /**
+         * Следующий диапазон для потока скачивания: сначала тот, которого ждёт
+         * читатель, затем первый ещё не начатый.
+         */
+        synchronized int nextRange() {
+            if (isStopped()) {
+                return -1;
+            }
+            for (int index = priorityRange; index < started.length; index++) {
+                if (!started[index]) {
+                    started[index] = true;
+                    return index;
+                }
+            }
+            for (int index = 0; index < priorityRange; index++) {
+                if (!started[index]) {
+                    started[index] = true;
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        synchronized boolean retain() {
+            if (closed || failure != null || abandoned) {
+                return false;
+            }
+            readers++;
+            return true;
+        }
+
+        synchronized boolean covers(long start, long endInclusive) {
+            long position = start;
+            while (position <= endInclusive) {
+                int index = rangeIndex(position);
+                long have = rangeStart(index) + filled[index] - position;
+                if (have <= 0) {
+                    return false;
+                }
+                position += have;
+            }
+            return true;
+        }
+
+        /**
+         * @return {@code false}, если скачивание остановлено: читателей не осталось
+         * или другой диапазон завершился ошибкой
+         */
+        boolean append(int index, byte[] buffer, int length) throws IOException {
+            long position;
+            synchronized (this) {
+                if (readers == 0) {
+                    abandoned = true;
+                    notifyAll();
+                }
+                if (isStopped()) {
+                    return false;
+                }
+                position = rangeStart(index) + filled[index];
+                if (position + length - 1 > rangeEnd(index)) {
+                    IOException overflow = new IOException("Drive returned more than " + size
+                            + " bytes of " + fileId);
+                    fail(overflow);
+                    throw overflow;
+                }
+            }
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, length);
+            while (chunk.hasRemaining()) {
+                channel.write(chunk, position + chunk.position());
+            }
+            synchronized (this) {
+                filled[index] += length;
+                notifyAll();
+            }
+            return true;
+        }
+
+        synchronized void finishUnsized() {
+            size = filled[0];
+            notifyAll();
+        }
+
+        synchronized void fail(IOException error) {
+            if (failure == null) {
+                failure = error;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Проверяет, что каждый диапазон получен целиком и вместе они дают
+         * ожидаемый размер файла.
+         */
+        synchronized boolean verifyComplete() {
+            if (isStopped() || size == null) {
+                return false;
+            }
+            long total = 0;
+            for (int index = 0; index < filled.length; index++) {
+                if (!isRangeFilled(index) && isSized()) {
+                    fail(new IOException("Range " + index + " of " + fileId + " is incomplete"));
+                    return false;
+                }
+                total += filled[index];
+            }
+            if (total != size) {
+                fail(new IOException("Download of " + fileId + " has " + total + " of " + size + " bytes"));
+                return false;
+            }
+            complete = true;
+            notifyAll();
+            return true;
+        }
+
+        /**
+         * Ждёт, пока станет доступен байт с позиции {@code position}. Если его
+         * диапазон ещё не начат, просит скачать этот диапазон следующим.
+         *
+         * @return число байт, доступных подряд с этой позиции, или -1 в конце файла
+         */
+        synchronized long awaitAvailable(long position) throws IOException {
+            long deadline = System.currentTimeMillis() + stallTimeoutMillis;
+            while (true) {
+                if (size != null && position >= size) {
+                    return -1;
+                }
+                int index = rangeIndex(position);
+                long have = rangeStart(index) + filled[index] - position;
+                if (have > 0) {
+                    return have;
+                }
+                if (failure != null) {
+                    throw new IOException("Download of " + fileId + " failed", failure);
+                }
+                if (abandoned || complete) {
+                    return -1;
+                }
+                if (!started[index]) {
+                    priorityRange = index;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException("No data from download of " + fileId + " for " + stallTimeoutMillis + " ms");
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for " + fileId);
+                }
+            }
+        }
+
+        InputStream newReader(long offset) {
+            return new Reader(this, offset);
+        }
+
+        /**
+         * Последний поток скачивания не снимается со счёта до {@link #releaseWorkers},
+         * чтобы читатели не удалили файл, пока он переносится в хранилище.
+         *
+         * @return {@code true} для последнего завершившегося потока скачивания
+         */
+        synchronized boolean workerDone() {
+            if (activeWorkers == 1) {
+                return true;
+            }
+            activeWorkers--;
+            return false;
+        }
+
+        void releaseWorkers() {
+            synchronized (this) {
+                activeWorkers = 0;
+                if (readers > 0 || closed) {
+                    return;
+                }
+                closed = true;
+            }
+            close();
+        }
+
+        void releaseReader() {
+            synchronized (this) {
+                readers--;
+                if (readers > 0 || activeWorkers > 0 || closed) {
+                    return;
+                }
+                closed = true;
+            }
+            close();
+        }
+
+        void discard() {
+            synchronized (this) {
+                closed = true;
+            }
+            close();
+        }
+
+        private void close() {
+            try {
+                file.close();
+                if (!keepFile) {
+                    Files.deleteIfExists(tempFile);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not clean up download of {}: {}", fileId, e.getMessage());
+            }
+        }
+    }
+
+    private static final class Reader extends InputStream {
+
+        private final SharedDownload download;
+        private long position;
+        private boolean closed;
+
+        private Reader(SharedDownload download, long position) {
+            this.download = download;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (length == 0) {
+                return 0;
+            }
+            long ready = download.awaitAvailable(position);
+            if (ready < 0) {
+                return -1;
+            }
+            int read = download.channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, ready)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                download.releaseReader();
+            }
+        }
+    }
+}
@@ -1,28 +1,26 @@
 package music.service.service;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.transaction.Transactional;
-import com.google.api.client.http.InputStreamContent;
-import com.google.api.services.drive.Drive;
-import com.google.api.services.drive.model.File;
 import music.service.dto.*;
 import music.service.exception.ResourceNotFoundException;
 import music.service.exception.ValidationException;
 import music.service.model.*;
 import music.service.repositories.*;
-import org.apache.tika.Tika;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -34,13 +32,24 @@ public class TrackService {
     private final AlbumRepository albumRepository;
     private final UserRepository userRepository;
     private final CacheService cacheService;
-    private final Drive googleDriveService;
     private final MediaService mediaService;
 
     private static final int DEFAULT_PAGE = 0;
     private static final int DEFAULT_SIZE = 1;
     private static final String TRACKS_CACHE_PREFIX = "tracks";
     private static final String TRACK_CACHE_PREFIX = "track";
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final Set<String> TRACK_CONTENT_TYPES = Set.of(
+            "audio/mpeg",     // MP3
+            "audio/wav",      // WAV
+            "audio/x-wav",    // WAV (альтернативный)
+            "audio/vnd.wave", // WAV (Tika 2)
+            "audio/aac",      // AAC
+            "audio/x-aac",    // AAC (Tika 2)
+            "audio/flac",     // FLAC
+            "audio/x-flac"    // FLAC (Tika 2)
+    );
     private final PlaylistRepository playlistRepository;
     private final AlbumService albumService;
 
@@ -49,12 +58,11 @@ public class TrackService {
                         AlbumRepository albumRepository,
                         UserRepository userRepository,
                         CacheService cacheService,
-                        Drive googleDriveService, MediaService mediaService, PlaylistRepository playlistRepository, AlbumService albumService) {
+                        MediaService mediaService, PlaylistRepository playlistRepository, AlbumService albumService) {
         this.trackRepository = trackRepository;
         this.albumRepository = albumRepository;
         this.userRepository = userRepository;
         this.cacheService = cacheService;
-        this.googleDriveService = googleDriveService;
         this.mediaService = mediaService;
         this.playlistRepository = playlistRepository;
         this.albumService = albumService;
@@ -85,14 +93,14 @@ public class TrackService {
     @Transactional
     public void deleteTrack(Long trackId) {
         Track track = getTrackById(trackId);
-        deleteMediaFileFromDrive(track.getMediaFileId());
+        mediaService.releaseMedia(track.getMediaFileId());
         removeTrackRelations(track);
         trackRepository.delete(track);
         evictAllTrackCaches();
         albumService.clearCacheForAlbum(track.getAlbum().getId());
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     public Page<Track> getAllTracks(String username, String albumTitle, String title,
                                     String genre, String playlistName, Pageable pageable) {
 
@@ -113,6 +121,75 @@ public class TrackService {
         return tracks;
     }
 
+    /**
+     * Страница треков без запроса {@code COUNT}. Примерное общее число треков
+     * берётся из статистики планировщика и только для списка без фильтров.
+     */
+    @ReadOnlyTransactional
+    public SliceResponse<TrackResponse> getTrackSlice(String username, String albumTitle, String title,
+                                                      String genre, String playlistName, Pageable pageable,
+                                                      boolean approximateTotal) {
+        Slice<Track> tracks = trackRepository.findSlice(
+                TrackSpecifications.filter(username, albumTitle, title, genre, playlistName), pageable);
+
+        boolean unfiltered = Stream.of(username, albumTitle, title, genre, playlistName).allMatch(Objects::isNull);
+        Long total = null;
+        if (approximateTotal && unfiltered) {
+            OptionalLong estimate = trackRepository.estimateTotal();
+            total = estimate.isPresent() ? estimate.getAsLong() : null;
+        }
+        return SliceResponse.<TrackResponse>builder()
+                .content(mapToTrackResponses(tracks.getContent()))
+                .page(tracks.getNumber())
+                .size(tracks.getSize())
+                .hasNext(tracks.hasNext())
+                .approximateTotal(total)
+                .build();
+    }
+
+    /**
+     * Страница треков после курсора, отсортированная по {@code title} или {@code id}.
+     */
+    @ReadOnlyTransactional
+    public CursorPage<TrackResponse> getTracksAfter(String cursor, int size, String sortBy) {
+        if (!"title".equals(sortBy) && !"id".equals(sortBy)) {
+            throw new ValidationException("Неподдерживаемая сортировка: " + sortBy);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor, sortBy);
+
+        List<Track> rows = "title".equals(sortBy)
+                ? trackRepository.findPageAfterTitle(after.value(), after.id(), pageSize + 1)
+                : trackRepository.findPageAfterId(after.id(), pageSize + 1);
+        return KeysetCursor.page(rows, pageSize, sortBy,
+                "title".equals(sortBy) ? Track::getTitle : track -> "",
+                Track::getId, this::mapToTrackResponse);
+    }
+
+    /**
+     * Поиск треков по названию, альбому и исполнителю, лучшие совпадения первыми.
+     */
+    @ReadOnlyTransactional
+    public List<TrackResponse> searchTracks(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        String normalized = query.trim();
+        List<Long> ids = trackRepository.searchTracks(normalized, TrackSpecifications.containsPattern(normalized),
+                        Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)))
+                .stream()
+                .map(TrackRepository.SearchHit::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, Track> tracks = trackRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Track::getId, track -> track));
+        return ids.stream()
+                .map(tracks::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToTrackResponse)
+                .collect(Collectors.toList());
+    }
+
     @Transactional
     public List<TrackResponse> addTracksBulk(List<CreateTrackRequest> requests, List<MultipartFile> mediaFiles) {
         if (requests.size() != mediaFiles.size()) {
@@ -145,7 +222,7 @@ public class TrackService {
         track.setAlbum(album);
         track.setTitle(request.getTitle());
         track.setDuration(request.getDuration());
-        String mediaFileId = mediaService.uploadMedia(mediaFile);
+        String mediaFileId = mediaService.uploadMedia(mediaFile, TRACK_CONTENT_TYPES);
         track.setMediaFileId(mediaFileId);
 
         return track;
@@ -221,16 +298,6 @@ public class TrackService {
     }
 
 
-    private void deleteMediaFileFromDrive(String mediaFileId) {
-        if (mediaFileId != null) {
-            try {
-                googleDriveService.files().delete(mediaFileId).execute();
-            } catch (IOException e) {
-                logger.warn("Could not delete media file {}: {}", mediaFileId, e.getMessage());
-            }
-        }
-    }
-
     private void removeTrackRelations(Track track) {
         track.getUsers().clear();
         track.getPlaylists().clear();
@@ -365,7 +432,8 @@ public class TrackService {
 
     private Page<Track> fetchFilteredTracks(String username, String albumTitle, String title,
                                             String genre, String playlistName, Pageable pageable) {
-        return trackRepository.findTracks(playlistName,username,title,genre,albumTitle,pageable);
+        return trackRepository.findAll(
+                TrackSpecifications.filter(username, albumTitle, title, genre, playlistName), pageable);
     }
 
     private Map<Long, User> fetchUsersForRequests(List<CreateTrackRequest> requests) {
@@ -384,28 +452,11 @@ public class TrackService {
             throw new ValidationException("Файл отсутствует или пуст");
         }
 
-        Tika tika = new Tika();
-        String detectedType;
-        try {
-            detectedType = tika.detect(mediaFile.getInputStream());
-        } catch (IOException e) {
-            throw new ValidationException("Не удалось определить тип файла", e);
-        }
-
-        Set<String> allowedContentTypes = Set.of(
-                "audio/mpeg",    // MP3
-                "audio/wav",     // WAV
-                "audio/x-wav",   // WAV (альтернативный)
-                "audio/aac",     // AAC
-                "audio/flac"     // FLAC
-        );
-
-        if (!allowedContentTypes.contains(detectedType)) {
+        String declaredType = mediaFile.getContentType();
+        if (declaredType != null && !declaredType.equals("application/octet-stream")
+                && !TRACK_CONTENT_TYPES.contains(declaredType)) {
             throw new ValidationException("Недопустимый тип файла. " +
                     "Разрешены только аудиофайлы (MP3, WAV, AAC, FLAC)");
         }
     }
-
-
-
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package music.service.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -8,6 +10,7 @@ import javax.transaction.Transactional;
 
 import music.service.dto.*;
 import music.service.model.Album;
+import music.service.model.Playlist;
 import music.service.model.Track;
 import music.service.model.User;
 import music.service.repositories.*;
@@ -28,6 +31,7 @@ public class UserService {
     private final JwtUtil jwtUtil;
     private final AlbumService albumService;
     private final TrackService trackService;
+    private final MediaService mediaService;
 
     @Autowired
     public UserService(UserRepository userRepository,
@@ -35,7 +39,8 @@ public class UserService {
                        TrackRepository trackRepository,
                        PasswordEncoder passwordEncoder,
                        JwtUtil jwtUtil, AlbumService albumService,
-                       TrackService trackService) {
+                       TrackService trackService,
+                       MediaService mediaService) {
         this.userRepository = userRepository;
         this.albumRepository = albumRepository;
         this.trackRepository = trackRepository;
@@ -43,6 +48,7 @@ public class UserService {
         this.jwtUtil = jwtUtil;
         this.albumService = albumService;
         this.trackService = trackService;
+        this.mediaService = mediaService;
     }
 
     public User createAndEncodeUser(CreateUserRequest request) {
@@ -165,10 +171,14 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException(USER_NOT_FOUND));
 
+        List<String> releasedMedia = new ArrayList<>();
+        Set<Album> deletedAlbums = new HashSet<>();
         for (Album album : user.getAlbums()) {
             album.getUsers().remove(user);
 
             if (album.getUsers().isEmpty()) {
+                releasedMedia.addAll(albumService.collectMediaFileIds(album));
+                deletedAlbums.add(album);
                 albumRepository.delete(album);
             }
         }
@@ -176,9 +186,18 @@ public class UserService {
             track.getUsers().remove(user);
 
             if (track.getUsers().isEmpty()) {
+                if (!deletedAlbums.contains(track.getAlbum())) {
+                    releasedMedia.add(track.getMediaFileId());
+                }
                 trackRepository.delete(track);
             }
         }
+        // users_playlists принадлежит и Playlist.users, а её кэш второго уровня
+        // удаление через User не сбрасывает
+        for (Playlist playlist : user.getPlaylists()) {
+            playlist.getUsers().remove(user);
+        }
+        mediaService.releaseMediaBatch(releasedMedia);
         trackService.evictAllTrackCaches();
         albumService.evictAllAlbumCaches();
         userRepository.delete(user);
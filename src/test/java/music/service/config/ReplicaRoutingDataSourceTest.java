@@ -0,0 +1,193 @@
+package music.service.config;
+
+import music.service.config.ReplicaRoutingDataSource.Replica;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+    @Mock
+    private DataSource firstReplicaPool;
+    @Mock
+    private DataSource secondReplicaPool;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Connection replicaConnection;
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private Replica firstReplica;
+    private Replica secondReplica;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplicaPool.getConnection()).thenReturn(replicaConnection);
+        when(secondReplicaPool.getConnection()).thenReturn(replicaConnection);
+
+        firstReplica = new Replica("replica-1", firstReplicaPool);
+        secondReplica = new Replica("replica-2", secondReplicaPool);
+        firstReplica.markUp();
+        secondReplica.markUp();
+        routing = new ReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica),
+                5_000, 10_000, now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        SecurityContextHolder.clearContext();
+        routing.destroy();
+    }
+
+    @Test
+    void route_ShouldSpreadReadOnlyTransactionsOverHealthyReplicas() {
+        // Arrange
+        beginTransaction(true);
+
+        // Act
+        Replica first = routing.route();
+        Replica second = routing.route();
+        secondReplica.markDown();
+        Replica third = routing.route();
+        Replica fourth = routing.route();
+
+        // Assert
+        assertNotSame(first, second);
+        assertSame(firstReplica, third);
+        assertSame(firstReplica, fourth);
+    }
+
+    @Test
+    void route_ShouldUsePrimary_ForWritesAndWhenNoReplicaIsHealthy() {
+        beginTransaction(false);
+        assertNull(routing.route());
+
+        beginTransaction(true);
+        firstReplica.markDown();
+        secondReplica.markDown();
+        assertNull(routing.route());
+    }
+
+    @Test
+    void getConnection_ShouldFallBackToPrimary_WhenReplicaRefusesConnection() throws SQLException {
+        // Arrange
+        beginTransaction(true);
+        secondReplica.markDown();
+        when(firstReplicaPool.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        // Act
+        Connection connection = routing.getConnection();
+
+        // Assert
+        assertSame(primaryConnection, connection);
+        assertFalse(firstReplica.isHealthy());
+    }
+
+    @Test
+    void getConnection_ShouldNotifyListenerOnlyForReplicaReads() throws SQLException {
+        // Arrange
+        Runnable listener = mock(Runnable.class);
+        routing.setReplicaReadListener(listener);
+
+        // Act
+        beginTransaction(false);
+        routing.getConnection();
+        beginTransaction(true);
+        firstReplica.markDown();
+        when(secondReplicaPool.getConnection()).thenThrow(new SQLException("connection refused"));
+        routing.getConnection();
+        secondReplica.markUp();
+        doReturn(replicaConnection).when(secondReplicaPool).getConnection();
+        Connection connection = routing.getConnection();
+
+        // Assert
+        assertSame(replicaConnection, connection);
+        verify(listener, times(1)).run();
+    }
+
+    @Test
+    void route_ShouldPinUserToPrimaryAfterOwnWrite() {
+        // Arrange
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("queen", null, List.of()));
+        beginTransaction(false);
+        routing.route();
+
+        // Act
+        beginTransaction(true);
+        Replica pinned = routing.route();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("freddie", null, List.of()));
+        Replica otherUser = routing.route();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("queen", null, List.of()));
+        now.addAndGet(5_001);
+        Replica afterPin = routing.route();
+
+        // Assert
+        assertNull(pinned);
+        assertNotNull(otherUser);
+        assertNotNull(afterPin);
+    }
+
+    @Test
+    void checkReplicas_ShouldMarkLaggingOrFailingReplicasDown() throws SQLException {
+        // Arrange
+        Statement statement = mock(Statement.class);
+        ResultSet lag = mock(ResultSet.class);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(lag);
+        when(lag.next()).thenReturn(true);
+        when(lag.getLong(1)).thenReturn(60_000L);
+        when(secondReplicaPool.getConnection()).thenThrow(new SQLException("timeout"));
+
+        // Act
+        routing.checkReplicas();
+
+        // Assert
+        assertFalse(firstReplica.isHealthy());
+        assertFalse(secondReplica.isHealthy());
+
+        // Act
+        when(lag.getLong(1)).thenReturn(200L);
+        routing.checkReplicas();
+
+        // Assert
+        assertTrue(firstReplica.isHealthy());
+        assertFalse(secondReplica.isHealthy());
+    }
+
+    private static void beginTransaction(boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+}
@@ -0,0 +1,144 @@
+package music.service.repositories;
+
+import music.service.model.Playlist;
+import music.service.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Кэш второго уровня работает между транзакциями, поэтому тест не оборачивается
+ * в общую транзакцию и каждое чтение выполняет в отдельной.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=org.ehcache.jsr107.EhcacheCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.uri=ehcache.xml",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=fail",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+    private Long playlistId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        playlistId = transactionTemplate.execute(status -> {
+            User user = userRepository.save(new User("queen", "password", "queen@mail.com", "USER"));
+            Playlist playlist = new Playlist("favourites");
+            playlist.getUsers().add(user);
+            return playlistRepository.save(playlist).getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            playlistRepository.deleteAll();
+            userRepository.deleteAll();
+        });
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void findById_ShouldServePlaylistAndItsUsersFromCache() {
+        // Arrange
+        readPlaylistUsers();
+        statistics.clear();
+
+        // Act
+        String owner = readPlaylistUsers();
+
+        // Assert
+        assertEquals("queen", owner);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= 3);
+    }
+
+    @Test
+    void findByUsername_ShouldServeRepeatedLookupsFromQueryCache() {
+        // Arrange
+        transactionTemplate.execute(status -> userRepository.findByUsername("queen"));
+        statistics.clear();
+
+        // Act
+        User user = transactionTemplate.execute(status -> userRepository.findByUsername("queen").orElseThrow());
+
+        // Assert
+        assertEquals("queen@mail.com", user.getEmail());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void save_ShouldEvictStaleEntryOnUpdate() {
+        // Arrange
+        readPlaylistUsers();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status ->
+                playlistRepository.findById(playlistId).orElseThrow().setName("renamed"));
+        String name = transactionTemplate.execute(status ->
+                playlistRepository.findById(playlistId).orElseThrow().getName());
+
+        // Assert
+        assertEquals("renamed", name);
+    }
+
+    @Test
+    void delete_ShouldNotLeaveDeletedUserInCachedPlaylistUsers() {
+        // Arrange
+        readPlaylistUsers();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            // Как в UserService.removeUser: кэш коллекции playlist.users сбрасывается, только
+            // если изменить её саму, удаление строк users_playlists через User его не трогает
+            User user = userRepository.findByUsername("queen").orElseThrow();
+            user.getPlaylists().forEach(playlist -> playlist.getUsers().remove(user));
+            userRepository.delete(user);
+        });
+        int owners = transactionTemplate.execute(status ->
+                playlistRepository.findById(playlistId).orElseThrow().getUsers().size());
+
+        // Assert
+        assertEquals(0, owners);
+    }
+
+    private String readPlaylistUsers() {
+        return transactionTemplate.execute(status -> playlistRepository.findById(playlistId).orElseThrow()
+                .getUsers().iterator().next().getUsername());
+    }
+}
@@ -0,0 +1,156 @@
+package music.service.repositories;
+
+import music.service.model.Album;
+import music.service.model.Playlist;
+import music.service.model.Track;
+import music.service.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TrackRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < 10; i++) {
+            User user = entityManager.persist(new User("user" + i, "password", "user" + i + "@mail.com", "USER"));
+            Playlist playlist = new Playlist("playlist" + i);
+            playlist.getUsers().add(user);
+            entityManager.persist(playlist);
+
+            Album album = new Album("album" + i);
+            album.getUsers().add(user);
+            entityManager.persist(album);
+
+            for (int j = 0; j < 2; j++) {
+                Track track = new Track("track" + i + "-" + j, 180);
+                track.setMediaFileId("file" + i + "-" + j);
+                track.setAlbum(album);
+                track.getUsers().add(user);
+                track.getPlaylists().add(playlist);
+                entityManager.persist(track);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findAll_ShouldLoadPageWithRelationsInConstantStatements() {
+        // Act
+        long smallPage = countStatementsForPage(5);
+        long largePage = countStatementsForPage(20);
+
+        // Assert
+        assertEquals(smallPage, largePage);
+        assertTrue(largePage <= 7, "Page of tracks took " + largePage + " statements");
+    }
+
+    @Test
+    void findAll_ShouldMatchEachTrackOnce_WhenFilteringByUserAndPlaylist() {
+        // Act
+        Page<Track> tracks = trackRepository.findAll(
+                TrackSpecifications.filter("user3", "album3", "track3", null, "playlist3"), PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(2, tracks.getTotalElements());
+        assertTrue(tracks.stream().allMatch(track -> track.getTitle().startsWith("track3-")));
+    }
+
+    @Test
+    void titleContains_ShouldTreatWildcardsLiterally() {
+        // Act
+        Page<Track> tracks = trackRepository.findAll(
+                TrackSpecifications.titleContains("track_"), PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(0, tracks.getTotalElements());
+    }
+
+    @Test
+    void findPageAfterTitle_ShouldWalkAllTracksInOrderWithoutGaps() {
+        // Arrange
+        List<String> seen = new ArrayList<>();
+        String title = "";
+        long id = 0;
+
+        // Act
+        List<Track> page;
+        while (!(page = trackRepository.findPageAfterTitle(title, id, 7)).isEmpty()) {
+            page.forEach(track -> seen.add(track.getTitle()));
+            Track last = page.get(page.size() - 1);
+            title = last.getTitle();
+            id = last.getId();
+        }
+
+        // Assert
+        assertEquals(20, seen.size());
+        assertEquals(seen.stream().sorted().collect(Collectors.toList()), seen);
+    }
+
+    @Test
+    void findSlice_ShouldProbeNextPageWithoutCountQuery() {
+        // Arrange
+        entityManager.clear();
+        statistics.clear();
+
+        // Act
+        Slice<Track> middle = trackRepository.findSlice(TrackSpecifications.filter(null, null, null, null, null),
+                PageRequest.of(1, 8));
+        long statements = statistics.getPrepareStatementCount();
+        Slice<Track> last = trackRepository.findSlice(TrackSpecifications.filter(null, null, null, null, null),
+                PageRequest.of(2, 8));
+
+        // Assert
+        assertEquals(1, statements);
+        assertEquals(8, middle.getNumberOfElements());
+        assertTrue(middle.hasNext());
+        assertEquals(4, last.getNumberOfElements());
+        assertFalse(last.hasNext());
+    }
+
+    /**
+     * Загружает страницу и обходит те же связи, что и маппинг в TrackResponse.
+     */
+    private long countStatementsForPage(int size) {
+        entityManager.clear();
+        statistics.clear();
+
+        Page<Track> page = trackRepository.findAll(
+                TrackSpecifications.filter(null, null, null, null, null), PageRequest.of(0, size));
+        for (Track track : page) {
+            track.getUsers().forEach(User::getUsername);
+            track.getPlaylists().forEach(Playlist::getName);
+            track.getAlbum().getUsers().forEach(User::getUsername);
+            track.getAlbum().getTracks().forEach(Track::getTitle);
+        }
+
+        assertEquals(size, page.getNumberOfElements());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,139 @@
+package music.service.repositories;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import music.service.config.TrigramIndexInitializer;
+import music.service.dto.AlbumSummaryResponse;
+import music.service.model.Album;
+import music.service.model.Track;
+import music.service.model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Поиск на pg_trgm против встроенного PostgreSQL; запускается профилем integration-tests.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TrigramIndexInitializer.class)
+class TrigramSearchIT {
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private TrigramIndexInitializer trigramIndexInitializer;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        // Тестовый application.properties заменяет основной, а схему на внешней БД ведёт Hibernate
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+    }
+
+    @BeforeEach
+    void setUp() {
+        trigramIndexInitializer.createIndexes();
+
+        User queen = entityManager.persist(new User("queen", "password", "queen@mail.com", "USER"));
+        Album opera = new Album("A Night at the Opera");
+        opera.getUsers().add(queen);
+        entityManager.persist(opera);
+        persistTrack("Bohemian Rhapsody", opera, queen);
+        persistTrack("Love of My Life", opera, queen);
+
+        User other = entityManager.persist(new User("someone", "password", "someone@mail.com", "USER"));
+        Album rhapsodies = new Album("Hungarian Rhapsodies");
+        rhapsodies.getUsers().add(other);
+        entityManager.persist(rhapsodies);
+        persistTrack("Rhapsody No. 2", rhapsodies, other);
+        persistTrack("Quiet Evening", rhapsodies, other);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void searchTracks_ShouldRankTitleMatchesAboveAlbumMatches() {
+        // Act
+        List<String> titles = titlesOf(trackRepository.searchTracks("rhapsody", "%rhapsody%", 10));
+
+        // Assert
+        assertEquals(3, titles.size());
+        assertTrue(titles.subList(0, 2).containsAll(List.of("Bohemian Rhapsody", "Rhapsody No. 2")));
+        assertEquals("Quiet Evening", titles.get(2));
+    }
+
+    @Test
+    void searchTracks_ShouldTolerateTyposAndMatchArtists() {
+        // Act
+        List<String> byTypo = titlesOf(trackRepository.searchTracks("rapsody", "%rapsody%", 10));
+        List<String> byArtist = titlesOf(trackRepository.searchTracks("queen", "%queen%", 10));
+
+        // Assert
+        assertEquals(2, byTypo.size());
+        assertTrue(byTypo.containsAll(List.of("Bohemian Rhapsody", "Rhapsody No. 2")));
+        assertEquals(2, byArtist.size());
+        assertTrue(byArtist.containsAll(List.of("Bohemian Rhapsody", "Love of My Life")));
+    }
+
+    @Test
+    void searchAlbumSummaries_ShouldReturnRankedSummaries() {
+        // Act
+        List<AlbumSummaryResponse> albums = albumRepository.searchAlbumSummaries("opera", 10);
+
+        // Assert
+        assertEquals(1, albums.size());
+        assertEquals("A Night at the Opera", albums.get(0).getTitle());
+        assertEquals(List.of("queen"), albums.get(0).getArtists());
+        assertEquals(2, albums.get(0).getTrackCount());
+    }
+
+    private void persistTrack(String title, Album album, User user) {
+        Track track = new Track(title, 300);
+        track.setMediaFileId(title);
+        track.setAlbum(album);
+        track.getUsers().add(user);
+        entityManager.persist(track);
+    }
+
+    private List<String> titlesOf(List<TrackRepository.SearchHit> hits) {
+        return hits.stream()
+                .map(hit -> trackRepository.findById(hit.getId()).orElseThrow().getTitle())
+                .collect(Collectors.toList());
+    }
+}
@@ -2,6 +2,7 @@ package music.service.service;
 
 import music.service.dto.*;
 import music.service.exception.ResourceNotFoundException;
+import music.service.exception.ValidationException;
 import music.service.model.Album;
 import music.service.model.User;
 import music.service.repositories.AlbumRepository;
@@ -101,6 +102,40 @@ class AlbumServiceTest {
         verify(cacheService, times(1)).put(cacheKey, dbPage);
     }
 
+    @Test
+    void getAlbumSummaries_ShouldQueryProjectionAndCache_WhenNoCache() {
+        // Arrange
+        String cacheKey = "albums_testUser_all_page0_size_10_sort_title_summary";
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("title"));
+        AlbumSummaryResponse summary = AlbumSummaryResponse.builder()
+                .id(1L)
+                .title("Test Album")
+                .artists(List.of("testUser"))
+                .trackCount(12)
+                .totalDuration(2400)
+                .build();
+        Page<AlbumSummaryResponse> dbPage = new PageImpl<>(List.of(summary));
+
+        when(cacheService.containsKey(cacheKey)).thenReturn(false);
+        when(albumRepository.findAlbumSummaries("testUser", null, pageable)).thenReturn(dbPage);
+
+        // Act
+        Page<AlbumSummaryResponse> result = albumService.getAlbumSummaries("testUser", null, 0, 10, "title");
+
+        // Assert
+        assertEquals(12, result.getContent().get(0).getTrackCount());
+        verify(albumRepository, never()).findByUserUsername(any(), any());
+        verify(cacheService, times(1)).put(cacheKey, dbPage);
+    }
+
+    @Test
+    void getAlbumSummaries_ShouldRejectUnknownSort() {
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> albumService.getAlbumSummaries("testUser", null, 0, 10, "releaseDate"));
+        verifyNoInteractions(albumRepository);
+    }
+
     @Test
     void getAlbumById_ShouldReturnFromCache() {
         // Arrange
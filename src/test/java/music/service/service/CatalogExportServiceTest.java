@@ -0,0 +1,110 @@
+package music.service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import music.service.dto.CatalogImportRow;
+import music.service.model.Album;
+import music.service.model.Playlist;
+import music.service.model.Track;
+import music.service.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class CatalogExportServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        User user = entityManager.persist(new User("queen", "password", "queen@mail.com", "USER"));
+        Album album = new Album("A Night at the Opera");
+        album.getUsers().add(user);
+        entityManager.persist(album);
+
+        Playlist playlist = new Playlist("favourites");
+        playlist.getUsers().add(user);
+        entityManager.persist(playlist);
+
+        for (int i = 0; i < 5; i++) {
+            Track track = new Track("track" + i, 180 + i);
+            track.setMediaFileId("file" + i);
+            track.setAlbum(i < 3 ? album : null);
+            track.getUsers().add(user);
+            track.getPlaylists().add(playlist);
+            entityManager.persist(track);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void export_ShouldWriteOneJsonObjectPerLineForEveryRow() throws Exception {
+        // Arrange
+        CatalogExportService exportService = new CatalogExportService(entityManager.getEntityManager(),
+                transactionManager, objectMapper, 2, 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = exportService.export(out);
+
+        // Assert
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertEquals(rows, lines.size());
+        assertEquals(List.of("user", "album", "track", "track", "track", "track", "track", "playlist",
+                        "album_artist", "track_artist", "track_artist", "track_artist", "track_artist",
+                        "track_artist", "playlist_track", "playlist_track", "playlist_track",
+                        "playlist_track", "playlist_track", "playlist_user"),
+                lines.stream().map(line -> line.get("type").asText()).collect(Collectors.toList()));
+
+        String userKey = lines.get(0).get("key").asText();
+        JsonNode firstTrack = lines.get(2);
+        assertEquals("track0", firstTrack.get("title").asText());
+        assertEquals(180, firstTrack.get("duration").asInt());
+        assertEquals(lines.get(1).get("key").asText(), firstTrack.get("album").asText());
+        assertTrue(lines.get(6).get("album").isNull());
+        assertEquals(userKey, lines.get(8).get("user").asText());
+        assertEquals("favourites", lines.get(7).get("title").asText());
+        assertFalse(lines.get(0).has("passwordHash"));
+    }
+
+    @Test
+    void export_ShouldWriteRowsTheImportAccepts() throws Exception {
+        // Arrange
+        CatalogExportService exportService = new CatalogExportService(entityManager.getEntityManager(),
+                transactionManager, objectMapper, 1000, 1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        exportService.export(out);
+
+        // Assert
+        long line = 0;
+        for (String text : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            CatalogImportRow row = objectMapper.readValue(text, CatalogImportRow.class);
+            long current = ++line;
+            assertDoesNotThrow(() -> CatalogImportService.validate(row, current), text);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package music.service.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import music.service.dto.CatalogImportResult;
+import music.service.exception.ValidationException;
+import music.service.model.Album;
+import music.service.model.MediaBlob;
+import music.service.model.Playlist;
+import music.service.model.Track;
+import music.service.model.User;
+import music.service.service.CatalogImportService.Format;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Импорт каталога через COPY и set-based слияние против встроенного PostgreSQL;
+ * запускается профилем integration-tests.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CatalogImportService.class, CatalogExportService.class, JacksonAutoConfiguration.class})
+class CatalogImportIT {
+
+    private static final String HASH = "$2a$10$" + "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0";
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CacheService cacheService;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        // Тестовый application.properties заменяет основной, а схему на внешней БД ведёт Hibernate
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+    }
+
+    @Test
+    void importCatalog_ShouldMergeRowsAndLinkExistingUsersByEmail() throws IOException {
+        // Arrange
+        User existing = entityManager.persistFlushFind(
+                new User("freddie", "existing-password", "freddie@mail.com", "USER"));
+        String body = "{\"type\":\"user\",\"key\":\"u1\",\"username\":\"renamed\",\"email\":\"freddie@mail.com\"}\n"
+                + "{\"type\":\"user\",\"key\":\"u2\",\"username\":\"brian\",\"email\":\"brian@mail.com\","
+                + "\"passwordHash\":\"" + HASH + "\"}\n"
+                + "{\"type\":\"album\",\"key\":\"a1\",\"title\":\"A Night at the Opera\"}\n"
+                + "{\"type\":\"track\",\"key\":\"t1\",\"title\":\"Bohemian Rhapsody\",\"duration\":354,"
+                + "\"mediaFileId\":\"f1\",\"album\":\"a1\"}\n"
+                + "{\"type\":\"track\",\"key\":\"t2\",\"title\":\"'39\",\"duration\":211,\"mediaFileId\":\"f2\"}\n"
+                + "{\"type\":\"album_artist\",\"album\":\"a1\",\"user\":\"u1\"}\n"
+                + "{\"type\":\"album_artist\",\"album\":\"a1\",\"user\":\"u1\"}\n"
+                + "{\"type\":\"album_artist\",\"album\":\"a1\",\"user\":\"u2\"}\n"
+                + "{\"type\":\"track_artist\",\"track\":\"t1\",\"user\":\"u1\"}\n"
+                + "{\"type\":\"track_artist\",\"track\":\"t2\",\"user\":\"u2\"}\n";
+
+        // Act
+        CatalogImportResult result = catalogImportService.importCatalog(stream(body), Format.NDJSON);
+
+        // Assert
+        assertEquals(10, result.getRows());
+        assertEquals(1, result.getUsers());
+        assertEquals(1, result.getAlbums());
+        assertEquals(2, result.getTracks());
+        assertEquals(2, result.getAlbumArtists());
+        assertEquals(2, result.getTrackArtists());
+
+        assertEquals(List.of("existing-password"), jdbcTemplate.queryForList(
+                "SELECT password FROM users WHERE id = ?", String.class, existing.getId()));
+        assertEquals(List.of(HASH), jdbcTemplate.queryForList(
+                "SELECT password FROM users WHERE email = 'brian@mail.com'", String.class));
+
+        Long albumId = jdbcTemplate.queryForObject(
+                "SELECT id FROM albums WHERE title = 'A Night at the Opera'", Long.class);
+        assertEquals(List.of(albumId), jdbcTemplate.queryForList(
+                "SELECT album_id FROM tracks WHERE title = 'Bohemian Rhapsody'", Long.class));
+        assertEquals(List.of(existing.getId()), jdbcTemplate.queryForList(
+                "SELECT ut.user_id FROM users_tracks ut JOIN tracks t ON t.id = ut.track_id "
+                        + "WHERE t.title = 'Bohemian Rhapsody'", Long.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users_albums WHERE album_id = ?", Integer.class, albumId));
+
+        // Идентификаторы взяты из общей последовательности Hibernate и не пересекаются с новыми сущностями
+        Album afterImport = entityManager.persistFlushFind(new Album("Sheer Heart Attack"));
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM users UNION ALL SELECT id FROM albums "
+                + "UNION ALL SELECT id FROM tracks", Long.class);
+        assertEquals(ids.size(), ids.stream().distinct().count());
+        assertTrue(ids.stream().allMatch(id -> id <= afterImport.getId()));
+    }
+
+    @Test
+    void importCatalog_ShouldLoadBackItsOwnExport() throws IOException {
+        // Arrange
+        User queen = entityManager.persist(new User("queen", "password", "queen@mail.com", "USER"));
+        Album album = new Album("Innuendo");
+        album.getUsers().add(queen);
+        entityManager.persist(album);
+        Track track = new Track("The Show Must Go On", 263);
+        track.setMediaFileId("f1");
+        track.setAlbum(album);
+        track.getUsers().add(queen);
+        entityManager.persist(track);
+        Playlist playlist = new Playlist("favourites");
+        playlist.getTracks().add(track);
+        playlist.getUsers().add(queen);
+        entityManager.persist(playlist);
+        entityManager.flush();
+        // releaseDate заполняет @CreationTimestamp, поэтому дату в прошлом задаём напрямую
+        jdbcTemplate.update("UPDATE tracks SET release_date = DATE '1991-02-04' WHERE id = ?", track.getId());
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        catalogExportService.export(exported);
+
+        // Act
+        CatalogImportResult result = catalogImportService.importCatalog(
+                new ByteArrayInputStream(exported.toByteArray()), Format.NDJSON);
+
+        // Assert
+        assertEquals(0, result.getUsers());
+        assertEquals(1, result.getAlbums());
+        assertEquals(1, result.getTracks());
+        assertEquals(1, result.getPlaylists());
+        assertEquals(1, result.getAlbumArtists());
+        assertEquals(1, result.getTrackArtists());
+        assertEquals(1, result.getPlaylistTracks());
+        assertEquals(1, result.getPlaylistUsers());
+        assertEquals(List.of(Date.valueOf("1991-02-04"), Date.valueOf("1991-02-04")), jdbcTemplate.queryForList(
+                "SELECT release_date FROM tracks WHERE title = 'The Show Must Go On'", Date.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users_playlists WHERE user_id = ?", Integer.class, queen.getId()));
+    }
+
+    @Test
+    void importCatalog_ShouldCountMediaReferencesOfImportedTracks() throws IOException {
+        // Arrange
+        entityManager.persist(new MediaBlob("uploaded-hash", "uploaded", 10L));
+        Track legacy = new Track("Legacy", 100);
+        legacy.setMediaFileId("legacy");
+        entityManager.persist(legacy);
+        entityManager.flush();
+        String body = "{\"type\":\"track\",\"key\":\"t1\",\"title\":\"One\",\"duration\":1,"
+                + "\"mediaFileId\":\"shared\"}\n"
+                + "{\"type\":\"track\",\"key\":\"t2\",\"title\":\"Two\",\"duration\":2,\"mediaFileId\":\"shared\"}\n"
+                + "{\"type\":\"track\",\"key\":\"t3\",\"title\":\"Three\",\"duration\":3,"
+                + "\"mediaFileId\":\"uploaded\"}\n"
+                + "{\"type\":\"track\",\"key\":\"t4\",\"title\":\"Four\",\"duration\":4,\"mediaFileId\":\"legacy\"}\n";
+
+        // Act
+        catalogImportService.importCatalog(stream(body), Format.NDJSON);
+
+        // Assert
+        assertEquals(List.of(2), referenceCount("shared"));
+        assertEquals(List.of(2), referenceCount("uploaded"));
+        assertEquals(List.of(2), referenceCount("legacy"));
+    }
+
+    @Test
+    void importCatalog_ShouldRejectPrivilegedRole() {
+        // Arrange
+        String body = "{\"type\":\"user\",\"key\":\"u1\",\"username\":\"root\",\"email\":\"root@mail.com\","
+                + "\"role\":\"ADMIN\"}\n";
+
+        // Act & Assert
+        // Отменённый COPY прерывает транзакцию теста, поэтому таблицы после ошибки не проверяются
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> catalogImportService.importCatalog(stream(body), Format.NDJSON));
+        assertEquals("Строка 1: недопустимая роль ADMIN", exception.getMessage());
+    }
+
+    private List<Integer> referenceCount(String mediaFileId) {
+        return jdbcTemplate.queryForList("SELECT reference_count FROM media_blobs WHERE media_file_id = ?",
+                Integer.class, mediaFileId);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
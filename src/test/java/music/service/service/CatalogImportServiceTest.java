@@ -0,0 +1,230 @@
+package music.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import music.service.dto.CatalogImportResult;
+import music.service.dto.CatalogImportRow;
+import music.service.exception.ValidationException;
+import music.service.service.CatalogImportService.Format;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CatalogImportServiceTest {
+
+    private static final String HASH = "$2a$10$" + "a".repeat(53);
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PGConnection pgConnection;
+    @Mock
+    private CopyManager copyManager;
+    @Mock
+    private CopyIn copyIn;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private CacheService cacheService;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+    @Mock
+    private SessionFactory sessionFactory;
+    @Mock
+    private Cache secondLevelCache;
+
+    private CatalogImportService catalogImportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+        when(jdbcTemplate.update(anyString())).thenReturn(1);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(secondLevelCache);
+
+        catalogImportService = new CatalogImportService(dataSource, jdbcTemplate, new ObjectMapper(),
+                cacheService, entityManagerFactory, "hibernate_sequence");
+    }
+
+    @Test
+    void importCatalog_ShouldStreamNdjsonRowsIntoCopyAndMerge() throws Exception {
+        // Arrange
+        String body = "{\"type\":\"user\",\"key\":\"u1\",\"username\":\"queen\",\"email\":\"q@x.io\","
+                + "\"passwordHash\":\"" + HASH + "\"}\n"
+                + "{\"type\":\"album\",\"key\":\"a1\",\"title\":\"A \\\"Night\\\"\"}\n"
+                + "{\"type\":\"track\",\"key\":\"t1\",\"title\":\"Love, of My Life\",\"duration\":219,"
+                + "\"mediaFileId\":\"f1\",\"album\":\"a1\"}\n";
+
+        // Act
+        CatalogImportResult result = catalogImportService.importCatalog(stream(body), Format.NDJSON);
+
+        // Assert
+        String staged = stagedPayload();
+        assertEquals(String.join("\n",
+                "1,\"user\",\"u1\",,\"queen\",\"q@x.io\",\"" + HASH + "\",,,,,,,,,,",
+                "2,\"album\",\"a1\",\"A \"\"Night\"\"\",,,,,,,,,,,,,",
+                "3,\"track\",\"t1\",\"Love, of My Life\",,,,,219,,,\"f1\",,\"a1\",,,") + "\n", staged);
+        assertEquals(3, result.getRows());
+        assertEquals(1, result.getTracks());
+        verify(copyIn).endCopy();
+        verify(copyIn, never()).cancelCopy();
+        verify(jdbcTemplate).execute("ANALYZE catalog_import_rows");
+        verify(cacheService).clear();
+        verify(secondLevelCache).evictAllRegions();
+        verify(connection).close();
+    }
+
+    @Test
+    void importCatalog_ShouldMapCsvColumnsByHeader() throws Exception {
+        // Arrange
+        String body = "key,type,title,duration,mediaFileId,genre\n"
+                + "t1,track,\"Hello, \"\"World\"\"\",180,f1,\n"
+                + "\n"
+                + "t2,track,Second,0,f2,\"\"\n";
+
+        // Act
+        CatalogImportResult result = catalogImportService.importCatalog(stream(body), Format.CSV);
+
+        // Assert
+        assertEquals(String.join("\n",
+                "2,\"track\",\"t1\",\"Hello, \"\"World\"\"\",,,,,180,,,\"f1\",,,,,",
+                "4,\"track\",\"t2\",\"Second\",,,,,0,,\"\",\"f2\",,,,,") + "\n", stagedPayload());
+        assertEquals(2, result.getRows());
+    }
+
+    @Test
+    void importCatalog_ShouldRejectInvalidRowWithLineNumberAndCancelCopy() throws Exception {
+        // Arrange
+        when(copyIn.isActive()).thenReturn(true);
+        String body = "{\"type\":\"album\",\"key\":\"a1\",\"title\":\"Ok\"}\n"
+                + "{\"type\":\"track\",\"key\":\"t1\",\"title\":\"No media\",\"duration\":10}\n";
+
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> catalogImportService.importCatalog(stream(body), Format.NDJSON));
+        assertTrue(exception.getMessage().startsWith("Строка 2:"));
+        assertTrue(exception.getMessage().contains("mediaFileId"));
+        verify(copyIn).cancelCopy();
+        verify(connection).close();
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+
+    @Test
+    void importCatalog_ShouldRejectDanglingReferencesBeforeMerging() throws Exception {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString()))
+                .thenReturn(List.of(Map.of("line_no", 7L, "problem", "нет альбома a9")));
+        String body = "{\"type\":\"album_artist\",\"album\":\"a9\",\"user\":\"u1\"}\n";
+
+        // Act & Assert
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> catalogImportService.importCatalog(stream(body), Format.NDJSON));
+        assertEquals("Строка 7: нет альбома a9", exception.getMessage());
+        verify(jdbcTemplate, never()).update(anyString());
+        verify(cacheService, never()).clear();
+    }
+
+    @Test
+    void validate_ShouldRejectPlainTextPasswordsAndUnknownTypes() {
+        CatalogImportRow user = new CatalogImportRow();
+        user.setType("user");
+        user.setKey("u1");
+        user.setUsername("queen");
+        user.setEmail("q@x.io");
+        user.setPasswordHash("secret");
+        CatalogImportRow unknown = new CatalogImportRow();
+        unknown.setType("label");
+
+        assertThrows(ValidationException.class, () -> CatalogImportService.validate(user, 1));
+        assertThrows(ValidationException.class, () -> CatalogImportService.validate(unknown, 2));
+    }
+
+    @Test
+    void validate_ShouldRejectUnknownRoles() {
+        CatalogImportRow admin = new CatalogImportRow();
+        admin.setType("user");
+        admin.setKey("u1");
+        admin.setUsername("root");
+        admin.setEmail("root@x.io");
+        admin.setRole("ADMIN");
+        CatalogImportRow regular = new CatalogImportRow();
+        regular.setType("user");
+        regular.setKey("u2");
+        regular.setUsername("queen");
+        regular.setEmail("q@x.io");
+        regular.setRole("USER");
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> CatalogImportService.validate(admin, 3));
+        assertEquals("Строка 3: недопустимая роль ADMIN", exception.getMessage());
+        assertDoesNotThrow(() -> CatalogImportService.validate(regular, 4));
+    }
+
+    @Test
+    void importCatalog_ShouldEvictCachesOnlyAfterCommit() throws Exception {
+        // Arrange
+        String body = "{\"type\":\"album\",\"key\":\"a1\",\"title\":\"Ok\"}\n";
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            catalogImportService.importCatalog(stream(body), Format.NDJSON);
+
+            // Assert
+            verify(cacheService, never()).clear();
+            verify(secondLevelCache, never()).evictAllRegions();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(cacheService).clear();
+            verify(secondLevelCache).evictAllRegions();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private String stagedPayload() throws Exception {
+        ArgumentCaptor<byte[]> bytes = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<Integer> length = ArgumentCaptor.forClass(Integer.class);
+        verify(copyIn, atLeastOnce()).writeToCopy(bytes.capture(), eq(0), length.capture());
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < bytes.getAllValues().size(); i++) {
+            payload.append(new String(bytes.getAllValues().get(i), 0, length.getAllValues().get(i),
+                    StandardCharsets.UTF_8));
+        }
+        return payload.toString();
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,98 @@
+package music.service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import music.service.exception.StorageUnavailableException;
+import music.service.service.DriveCallGuard.Operation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriveCallGuardTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DriveCallGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        guard = new DriveCallGuard(meterRegistry, 2, 10, 200, 200, 3, 1, 5, 4, 4, 50, 60000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+    }
+
+    @Test
+    void call_ShouldRetryIdempotentOperation() throws IOException {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        String result = guard.call(Operation.METADATA, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new SocketException("Connection reset");
+            }
+            return "ok";
+        });
+
+        // Assert
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2.0, meterRegistry.get("drive.calls.retries").counter().count());
+    }
+
+    @Test
+    void call_ShouldNotRetryUpload() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act & Assert
+        assertThrows(SocketException.class, () -> guard.call(Operation.UPLOAD, () -> {
+            calls.incrementAndGet();
+            throw new SocketException("Connection reset");
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void call_ShouldTimeOutSlowCall() {
+        // Act & Assert
+        StorageUnavailableException exception = assertThrows(StorageUnavailableException.class,
+                () -> guard.call(Operation.UPLOAD, () -> {
+                    try {
+                        Thread.sleep(2000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }));
+        assertTrue(exception.getMessage().contains("timed out"));
+    }
+
+    @Test
+    void call_ShouldShortCircuitAfterFailures() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            assertThrows(SocketException.class, () -> guard.call(Operation.UPLOAD, () -> {
+                calls.incrementAndGet();
+                throw new SocketException("Connection reset");
+            }));
+        }
+
+        // Act & Assert
+        assertThrows(StorageUnavailableException.class, () -> guard.call(Operation.METADATA, () -> {
+            calls.incrementAndGet();
+            return "ok";
+        }));
+        assertEquals(4, calls.get());
+        assertEquals(DriveCallGuard.CircuitBreaker.State.OPEN, guard.getCircuitState());
+    }
+}
@@ -0,0 +1,64 @@
+package music.service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotSegmentCacheTest {
+
+    @Test
+    void read_ShouldJoinSegmentsAndStopAtGap() {
+        // Arrange
+        HotSegmentCache cache = new HotSegmentCache(4, 3, 1024, 2);
+        cache.putHead("file1", new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+
+        // Act
+        Optional<byte[]> inside = cache.read("file1", 2, 9);
+        Optional<byte[]> beyondHead = cache.read("file1", 10, 20);
+        Optional<byte[]> pastCache = cache.read("file1", 12, 13);
+
+        // Assert
+        assertArrayEquals(new byte[]{2, 3, 4, 5, 6, 7, 8, 9}, inside.get());
+        assertArrayEquals(new byte[]{10, 11}, beyondHead.get());
+        assertTrue(pastCache.isEmpty());
+    }
+
+    @Test
+    void read_ShouldStopAtEndOfShortFile() {
+        // Arrange
+        HotSegmentCache cache = new HotSegmentCache(4, 3, 1024, 2);
+        cache.putHead("file1", new byte[]{0, 1, 2, 3, 4, 5});
+
+        // Act & Assert
+        assertArrayEquals(new byte[]{4, 5}, cache.read("file1", 4, 100).get());
+    }
+
+    @Test
+    void putHead_ShouldEvictLeastRecentlyUsedOverBudget() {
+        // Arrange
+        HotSegmentCache cache = new HotSegmentCache(4, 2, 16, 2);
+        cache.putHead("file1", new byte[8]);
+        cache.putHead("file2", new byte[8]);
+        cache.read("file1", 0, 7);
+
+        // Act
+        cache.putHead("file3", new byte[8]);
+
+        // Assert
+        assertEquals(16, cache.getTotalBytes());
+        assertTrue(cache.read("file1", 0, 3).isPresent());
+        assertTrue(cache.read("file2", 0, 3).isEmpty());
+    }
+
+    @Test
+    void recordMiss_ShouldAdmitAfterRepeatedAccess() {
+        // Arrange
+        HotSegmentCache cache = new HotSegmentCache(4, 2, 16, 2);
+
+        // Act & Assert
+        assertFalse(cache.recordMiss("file1"));
+        assertTrue(cache.recordMiss("file1"));
+    }
+}
@@ -0,0 +1,130 @@
+package music.service.service;
+
+import music.service.service.ImageVariantService.ImageVariant;
+import music.service.service.MediaService.FileInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageVariantServiceTest {
+
+    @Mock
+    private MediaService mediaService;
+
+    @TempDir
+    Path tempDir;
+
+    private ImageVariantStore variantStore;
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        variantStore = new ImageVariantStore(tempDir.toString(), 1024 * 1024);
+        variantStore.init();
+        imageVariantService = new ImageVariantService(mediaService, variantStore, "64,128,256", 0.85f, 1);
+    }
+
+    @Test
+    void resolveSize_ShouldRoundUpToAllowedSize() {
+        assertEquals(64, imageVariantService.resolveSize(10));
+        assertEquals(128, imageVariantService.resolveSize(100));
+        assertEquals(256, imageVariantService.resolveSize(4000));
+    }
+
+    @Test
+    void scale_ShouldKeepAspectRatio() {
+        // Arrange
+        BufferedImage source = new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB);
+
+        // Act
+        BufferedImage scaled = ImageVariantService.scale(source, 128);
+
+        // Assert
+        assertEquals(128, scaled.getWidth());
+        assertEquals(64, scaled.getHeight());
+    }
+
+    @Test
+    void getVariant_ShouldResizeOnceAndServeFromCache() throws IOException {
+        // Arrange
+        when(mediaService.getFileInfo("cover1"))
+                .thenReturn(new FileInfo("cover1", "cover.png", "url", "image/png", 1000L));
+        when(mediaService.downloadFile("cover1")).thenReturn(encode(new BufferedImage(800, 800, BufferedImage.TYPE_INT_RGB)));
+
+        // Act
+        Optional<ImageVariant> first = imageVariantService.getVariant("cover1", 100);
+        Optional<ImageVariant> second = imageVariantService.getVariant("cover1", 128);
+
+        // Assert
+        assertTrue(first.isPresent());
+        assertEquals("image/jpeg", first.get().contentType());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(first.get().content()));
+        assertEquals(128, decoded.getWidth());
+        assertArrayEquals(first.get().content(), second.get().content());
+        verify(mediaService, times(1)).downloadFile("cover1");
+    }
+
+    @Test
+    void getVariant_ShouldRejectNonImage() throws IOException {
+        // Arrange
+        when(mediaService.getFileInfo("track1"))
+                .thenReturn(new FileInfo("track1", "song.mp3", "url", "audio/mpeg", 1000L));
+
+        // Act & Assert
+        assertTrue(imageVariantService.getVariant("track1", 128).isEmpty());
+        verify(mediaService, never()).downloadFile(anyString());
+    }
+
+    @Test
+    void decode_ShouldSubsampleLargeSourceDownToTwiceTheSize() throws IOException {
+        // Arrange
+        byte[] content = encode(new BufferedImage(4000, 2000, BufferedImage.TYPE_INT_RGB));
+
+        // Act
+        BufferedImage decoded = ImageVariantService.decode(content, 128);
+
+        // Assert
+        assertTrue(decoded.getWidth() >= 256 && decoded.getWidth() < 300, "width " + decoded.getWidth());
+        assertEquals(4000.0 / 2000, (double) decoded.getWidth() / decoded.getHeight(), 0.05);
+    }
+
+    @Test
+    void getVariant_ShouldReleaseDecodeSlotWhenImageIsUnreadable() throws IOException {
+        // Arrange
+        when(mediaService.getFileInfo("broken"))
+                .thenReturn(new FileInfo("broken", "broken.png", "url", "image/png", 10L));
+        when(mediaService.downloadFile("broken")).thenReturn(new byte[] {1, 2, 3});
+        when(mediaService.getFileInfo("cover1"))
+                .thenReturn(new FileInfo("cover1", "cover.png", "url", "image/png", 1000L));
+        when(mediaService.downloadFile("cover1")).thenReturn(encode(new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB)));
+
+        // Act
+        Optional<ImageVariant> broken = imageVariantService.getVariant("broken", 64);
+        Optional<ImageVariant> cover = imageVariantService.getVariant("cover1", 64);
+
+        // Assert
+        assertTrue(broken.isEmpty());
+        assertTrue(cover.isPresent());
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,36 @@
+package music.service.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void init_ShouldRestoreVariantsAndDeleteOnlyLeftoverTempFiles() throws IOException {
+        // Arrange
+        Files.write(tempDir.resolve("cover1@128.jpg"), new byte[10]);
+        Files.write(tempDir.resolve("variant123456.tmp"), new byte[5]);
+        Files.write(tempDir.resolve("notes.txt"), new byte[3]);
+        Files.write(tempDir.resolve("backup@home.tmp"), new byte[3]);
+        ImageVariantStore store = new ImageVariantStore(tempDir.toString(), 1024);
+
+        // Act
+        store.init();
+
+        // Assert
+        assertTrue(store.get("cover1", 128).isPresent());
+        assertEquals(10, store.getTotalBytes());
+        assertFalse(Files.exists(tempDir.resolve("variant123456.tmp")));
+        assertTrue(Files.exists(tempDir.resolve("notes.txt")));
+        assertTrue(Files.exists(tempDir.resolve("backup@home.tmp")));
+    }
+}
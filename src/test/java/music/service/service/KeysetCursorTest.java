@@ -0,0 +1,64 @@
+package music.service.service;
+
+import music.service.dto.CursorPage;
+import music.service.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void decode_ShouldRestoreEncodedCursor() {
+        // Arrange
+        KeysetCursor cursor = new KeysetCursor("title", "Live at Wembley\n'86", 42);
+
+        // Act
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode(), "title");
+
+        // Assert
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void decode_ShouldStartFromBeginning_WhenNoCursor() {
+        assertEquals(KeysetCursor.start("id"), KeysetCursor.decode(null, "id"));
+    }
+
+    @Test
+    void decode_ShouldReject_WhenSortDiffersOrTokenIsGarbage() {
+        String titleCursor = new KeysetCursor("title", "abc", 1).encode();
+
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode(titleCursor, "id"));
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode("not a cursor!", "id"));
+    }
+
+    @Test
+    void page_ShouldTrimProbeRowAndPointCursorAtLastItem() {
+        // Arrange
+        List<String> rows = List.of("a", "b", "c");
+
+        // Act
+        CursorPage<String> page = KeysetCursor.page(rows, 2, "title",
+                Function.identity(), row -> (long) row.charAt(0), String::toUpperCase);
+
+        // Assert
+        assertEquals(List.of("A", "B"), page.getItems());
+        assertTrue(page.isHasNext());
+        assertEquals(new KeysetCursor("title", "b", 'b'), KeysetCursor.decode(page.getNextCursor(), "title"));
+    }
+
+    @Test
+    void page_ShouldHaveNoCursor_OnLastPage() {
+        // Act
+        CursorPage<String> page = KeysetCursor.page(List.of("a"), 2, "id",
+                row -> "", row -> 1L, Function.identity());
+
+        // Assert
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+}
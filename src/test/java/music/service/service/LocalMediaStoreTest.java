@@ -0,0 +1,103 @@
+package music.service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalMediaStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private LocalMediaStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalMediaStore(directory.toString(), 10);
+        store.init();
+    }
+
+    @Test
+    void readRange_ShouldReturnStoredBytes_WhenPrefixCoversRange() throws IOException {
+        // Arrange
+        store.storePrefix("file1", new byte[]{1, 2, 3, 4}, 8L);
+
+        // Act
+        Optional<byte[]> range = store.readRange("file1", 1, 2);
+
+        // Assert
+        assertArrayEquals(new byte[]{2, 3}, range.orElseThrow());
+        assertTrue(store.readRange("file1", 2, 5).isEmpty());
+        assertTrue(store.hasPrefix("file1", 4));
+        assertFalse(store.get("file1").orElseThrow().isComplete());
+    }
+
+    @Test
+    void storePrefix_ShouldEvictLeastRecentlyUsed_WhenOverBudget() throws IOException {
+        // Arrange
+        store.storePrefix("file1", new byte[4], 4L);
+        store.storePrefix("file2", new byte[4], 4L);
+        store.get("file1");
+
+        // Act
+        store.storePrefix("file3", new byte[4], 4L);
+
+        // Assert
+        assertTrue(store.get("file1").isPresent());
+        assertTrue(store.get("file2").isEmpty());
+        assertTrue(store.get("file3").isPresent());
+        assertEquals(8, store.getTotalBytes());
+    }
+
+    @Test
+    void evict_ShouldDeleteFileAndForgetEntry() throws IOException {
+        // Arrange
+        store.storePrefix("file1", new byte[4], 4L);
+        Path path = store.get("file1").orElseThrow().path();
+
+        // Act
+        store.evict("file1");
+
+        // Assert
+        assertFalse(Files.exists(path));
+        assertTrue(store.readRange("file1", 0, 1).isEmpty());
+        assertEquals(0, store.getTotalBytes());
+    }
+
+    @Test
+    void readRange_ShouldReturnEmpty_WhenFileVanishesBeforeRead() throws IOException {
+        // Arrange
+        store.storePrefix("file1", new byte[4], 4L);
+        Files.delete(store.get("file1").orElseThrow().path());
+
+        // Act
+        Optional<byte[]> range = store.readRange("file1", 0, 1);
+
+        // Assert
+        assertTrue(range.isEmpty());
+    }
+
+    @Test
+    void init_ShouldDeleteOnlyFilesCreatedByStore() throws IOException {
+        // Arrange
+        store.storePrefix("file1", new byte[4], 4L);
+        Path stored = store.get("file1").orElseThrow().path();
+        Path temp = store.newTempFile();
+        Path foreign = Files.write(directory.resolve("notes.txt"), new byte[]{1});
+
+        // Act
+        new LocalMediaStore(directory.toString(), 10).init();
+
+        // Assert
+        assertFalse(Files.exists(stored));
+        assertFalse(Files.exists(temp));
+        assertTrue(Files.exists(foreign));
+    }
+}
@@ -0,0 +1,41 @@
+package music.service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class MediaIngestStreamTest {
+
+    @Test
+    void testReadsSourceOnceAndHashesContent() throws IOException {
+        byte[] content = "ID3 not really an mp3".getBytes(StandardCharsets.UTF_8);
+
+        MediaIngestStream ingest = MediaIngestStream.open(
+                new ByteArrayInputStream(content), "track.mp3", "SHA-256");
+        byte[] passedThrough = ingest.readAllBytes();
+
+        assertArrayEquals(content, passedThrough);
+        assertEquals(content.length, ingest.getSize());
+        assertEquals(64, ingest.getContentHash().length());
+        assertNotNull(ingest.getDetectedType());
+    }
+
+    @Test
+    void testSameContentGivesSameHash() throws IOException {
+        byte[] content = new byte[MediaIngestStream.SNIFF_LENGTH * 3];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        MediaIngestStream first = MediaIngestStream.open(new ByteArrayInputStream(content), "a.bin", "SHA-256");
+        first.readAllBytes();
+        MediaIngestStream second = MediaIngestStream.open(new ByteArrayInputStream(content), "b.bin", "SHA-256");
+        second.readAllBytes();
+
+        assertEquals(first.getContentHash(), second.getContentHash());
+        assertEquals(content.length, second.getSize());
+    }
+}
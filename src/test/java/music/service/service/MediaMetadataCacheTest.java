@@ -0,0 +1,54 @@
+package music.service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import music.service.service.MediaService.FileInfo;
+import org.junit.jupiter.api.Test;
+
+class MediaMetadataCacheTest {
+
+    private FileInfo fileInfo(String id) {
+        return new FileInfo(id, id + ".mp3", "https://drive/" + id, "audio/mpeg", 1024L);
+    }
+
+    @Test
+    void testPutAndGet() {
+        MediaMetadataCache cache = new MediaMetadataCache(10, 60);
+        cache.put(fileInfo("file1"));
+
+        assertTrue(cache.get("file1").isPresent());
+        assertEquals("audio/mpeg", cache.get("file1").get().mimeType());
+        assertFalse(cache.get("file2").isPresent());
+    }
+
+    @Test
+    void testEvict() {
+        MediaMetadataCache cache = new MediaMetadataCache(10, 60);
+        cache.put(fileInfo("file1"));
+
+        cache.evict("file1");
+
+        assertFalse(cache.get("file1").isPresent());
+    }
+
+    @Test
+    void testExpiredEntryIsNotReturned() {
+        MediaMetadataCache cache = new MediaMetadataCache(10, -1);
+        cache.put(fileInfo("file1"));
+
+        assertFalse(cache.get("file1").isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        MediaMetadataCache cache = new MediaMetadataCache(2, 60);
+        cache.put(fileInfo("file1"));
+        cache.put(fileInfo("file2"));
+        cache.put(fileInfo("file3"));
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.get("file1").isPresent());
+        assertTrue(cache.get("file3").isPresent());
+    }
+}
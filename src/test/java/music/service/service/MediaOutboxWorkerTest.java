@@ -0,0 +1,89 @@
+package music.service.service;
+
+import music.service.model.MediaOperation;
+import music.service.repositories.MediaOperationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaOutboxWorkerTest {
+
+    @Mock
+    private MediaOperationRepository mediaOperationRepository;
+
+    @Mock
+    private DriveBatchClient driveBatchClient;
+
+    @Mock
+    private MediaService mediaService;
+
+    private MediaOutboxWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new MediaOutboxWorker(mediaOperationRepository, driveBatchClient, mediaService, 100, 10, 3600);
+    }
+
+    @Test
+    void drain_ShouldDeleteFilesAndRescheduleFailures() throws IOException {
+        // Arrange
+        MediaOperation done = MediaOperation.delete("media1");
+        MediaOperation failed = MediaOperation.delete("media2");
+        when(mediaOperationRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(done, failed));
+        when(driveBatchClient.deleteFiles(List.of("media1", "media2"))).thenReturn(Map.of(
+                "media1", new DriveBatchClient.BatchResult("media1", true, null),
+                "media2", new DriveBatchClient.BatchResult("media2", false, "rate limited")));
+
+        // Act
+        worker.drain();
+
+        // Assert
+        verify(mediaOperationRepository, times(1)).delete(done);
+        verify(mediaService, times(1)).forgetFile("media1");
+        verify(mediaService, never()).forgetFile("media2");
+        verify(mediaOperationRepository, times(1)).save(failed);
+        assertEquals(1, failed.getAttempts());
+        assertEquals("rate limited", failed.getLastError());
+        assertTrue(failed.getNextAttemptAt().isAfter(Instant.now()));
+    }
+
+    @Test
+    void drain_ShouldRescheduleAllWhenDriveUnavailable() throws IOException {
+        // Arrange
+        MediaOperation operation = MediaOperation.delete("media1");
+        when(mediaOperationRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(operation));
+        when(driveBatchClient.deleteFiles(anyList())).thenThrow(new IOException("connection reset"));
+
+        // Act
+        worker.drain();
+
+        // Assert
+        verify(mediaOperationRepository, never()).delete(any(MediaOperation.class));
+        verify(mediaOperationRepository, times(1)).save(operation);
+        assertEquals(1, operation.getAttempts());
+    }
+
+    @Test
+    void backoff_ShouldGrowAndStayCapped() {
+        // Assert
+        assertTrue(worker.backoff(1).compareTo(Duration.ofSeconds(10)) <= 0);
+        assertTrue(worker.backoff(3).compareTo(Duration.ofSeconds(20)) >= 0);
+        assertTrue(worker.backoff(40).compareTo(Duration.ofSeconds(3600)) <= 0);
+        assertTrue(worker.backoff(40).compareTo(Duration.ofSeconds(1800)) >= 0);
+    }
+}
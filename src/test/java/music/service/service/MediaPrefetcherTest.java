@@ -0,0 +1,95 @@
+package music.service.service;
+
+import music.service.repositories.PlaylistRepository;
+import music.service.service.MediaService.FileInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MediaPrefetcherTest {
+
+    private static final int HEAD_BYTES = 4;
+
+    @Mock
+    private PlaylistRepository playlistRepository;
+
+    @Mock
+    private MediaService mediaService;
+
+    @Mock
+    private LocalMediaStore localMediaStore;
+
+    private MediaPrefetcher prefetcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        prefetcher = new MediaPrefetcher(playlistRepository, mediaService, localMediaStore,
+                2, HEAD_BYTES, 1, 1024);
+        when(playlistRepository.findMediaFileIdsByPlaylistId(7L)).thenReturn(List.of("a", "b", "c", "d"));
+        when(mediaService.getFileInfo(anyString())).thenAnswer(invocation ->
+                new FileInfo(invocation.getArgument(0), "song.mp3", "url", "audio/mpeg", 100L));
+        when(mediaService.downloadRange(anyString(), eq(0L), eq((long) HEAD_BYTES - 1)))
+                .thenReturn(new byte[HEAD_BYTES]);
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    @Test
+    void onStreamRequested_ShouldWarmHeadsOfFollowingTracks() throws IOException {
+        // Act
+        prefetcher.onStreamRequested("a", 7L, null);
+
+        // Assert
+        verify(localMediaStore, timeout(2000)).storePrefix(eq("b"), any(byte[].class), eq(100L));
+        verify(localMediaStore, timeout(2000)).storePrefix(eq("c"), any(byte[].class), eq(100L));
+        verify(localMediaStore, after(200).never()).storePrefix(eq("d"), any(byte[].class), anyLong());
+    }
+
+    @Test
+    void onStreamRequested_ShouldSkipTracksAlreadyStoredLocally() throws IOException {
+        // Arrange
+        when(localMediaStore.hasPrefix("b", HEAD_BYTES)).thenReturn(true);
+
+        // Act
+        prefetcher.onStreamRequested("a", 7L, null);
+
+        // Assert
+        verify(localMediaStore, timeout(2000)).storePrefix(eq("c"), any(byte[].class), eq(100L));
+        verify(mediaService, after(200).never()).downloadRange(eq("b"), anyLong(), anyLong());
+    }
+
+    @Test
+    void onStreamRequested_ShouldNotPrefetch_WhenSeekingIntoMiddleOfTrack() throws IOException {
+        // Act
+        prefetcher.onStreamRequested("a", 7L, "bytes=40-60");
+
+        // Assert
+        verify(mediaService, after(300).never()).downloadRange(anyString(), anyLong(), anyLong());
+        verifyNoInteractions(playlistRepository);
+    }
+
+    @Test
+    void onStreamRequested_ShouldIgnoreRequestsOutsidePlaylist() {
+        // Act
+        prefetcher.onStreamRequested("a", null, null);
+
+        // Assert
+        verifyNoInteractions(playlistRepository, mediaService);
+    }
+}
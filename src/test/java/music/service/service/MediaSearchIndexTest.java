@@ -0,0 +1,67 @@
+package music.service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import music.service.service.MediaService.FileInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MediaSearchIndexTest {
+
+    private MediaSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MediaSearchIndex();
+        index.put(new FileInfo("1", "Beatles - Help.mp3", null, "audio/mpeg", 100L));
+        index.put(new FileInfo("2", "Queen - Bohemian Rhapsody.flac", null, "audio/flac", 200L));
+        index.put(new FileInfo("3", "Queen cover.jpg", null, "image/jpeg", 50L));
+    }
+
+    @Test
+    void testSearchByNamePrefix() {
+        List<FileInfo> result = index.search("beat");
+
+        assertEquals(1, result.size());
+        assertEquals("1", result.get(0).id());
+    }
+
+    @Test
+    void testSearchRequiresAllTokens() {
+        List<FileInfo> result = index.search("queen rhaps");
+
+        assertEquals(1, result.size());
+        assertEquals("2", result.get(0).id());
+    }
+
+    @Test
+    void testSearchByMimeType() {
+        List<FileInfo> result = index.search("image");
+
+        assertEquals(1, result.size());
+        assertEquals("3", result.get(0).id());
+    }
+
+    @Test
+    void testRemove() {
+        index.remove("2");
+
+        assertEquals(1, index.search("queen").size());
+        assertTrue(index.search("bohemian").isEmpty());
+    }
+
+    @Test
+    void testRenameReplacesTokens() {
+        index.put(new FileInfo("1", "Yesterday.mp3", null, "audio/mpeg", 100L));
+
+        assertTrue(index.search("beatles").isEmpty());
+        assertEquals(1, index.search("yesterday").size());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testEmptyQuery() {
+        assertTrue(index.search("  ").isEmpty());
+    }
+}
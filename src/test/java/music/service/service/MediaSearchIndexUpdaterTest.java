@@ -0,0 +1,57 @@
+package music.service.service;
+
+import music.service.service.MediaService.FileInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaSearchIndexUpdaterTest {
+
+    @Mock
+    private MediaService mediaService;
+
+    @Mock
+    private MediaSearchIndex searchIndex;
+
+    @InjectMocks
+    private MediaSearchIndexUpdater updater;
+
+    @Test
+    void applyChanges_ShouldRetrySeed_WhenInitialSeedFailed() throws IOException {
+        // Arrange
+        FileInfo file = new FileInfo("file1", "song.mp3", "url", "audio/mpeg", 1000L);
+        when(mediaService.getChangesStartToken())
+                .thenThrow(new IOException("Drive unavailable"))
+                .thenReturn("token1");
+        when(mediaService.streamAllFiles()).thenReturn(Stream.of(file));
+
+        // Act
+        updater.seedIndex();
+        updater.applyChanges();
+
+        // Assert
+        verify(searchIndex, times(1)).put(file);
+        verify(searchIndex, times(1)).markReady();
+        verify(mediaService, never()).listChanges(anyString());
+    }
+
+    @Test
+    void applyChanges_ShouldNotReseed_WhenIndexIsReady() throws IOException {
+        // Arrange
+        when(searchIndex.isReady()).thenReturn(true);
+
+        // Act
+        updater.applyChanges();
+
+        // Assert
+        verify(mediaService, never()).getChangesStartToken();
+    }
+}
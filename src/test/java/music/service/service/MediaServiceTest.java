@@ -0,0 +1,279 @@
+package music.service.service;
+
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import music.service.model.MediaBlob;
+import music.service.model.MediaOperation;
+import music.service.repositories.MediaBlobRepository;
+import music.service.repositories.MediaOperationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaServiceTest {
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private Drive googleDriveService;
+
+    @Mock
+    private MediaMetadataCache metadataCache;
+
+    @Mock
+    private MediaBlobRepository mediaBlobRepository;
+
+    @Mock
+    private MediaSearchIndex searchIndex;
+
+    @Mock
+    private LocalMediaStore localMediaStore;
+
+    @Mock
+    private DriveBatchClient driveBatchClient;
+
+    @Mock
+    private MediaOperationRepository mediaOperationRepository;
+
+    @Mock
+    private DriveCallGuard driveCallGuard;
+
+    @Mock
+    private ImageVariantStore imageVariantStore;
+
+    @Mock
+    private SharedMediaDownloads sharedDownloads;
+
+    @Mock
+    private HotSegmentCache hotSegments;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private MediaService mediaService;
+
+    @Test
+    void releaseMedia_ShouldKeepSharedFile() {
+        // Arrange
+        when(mediaBlobRepository.decrementSharedReferences("media123")).thenReturn(1);
+
+        // Act
+        mediaService.releaseMedia("media123");
+
+        // Assert
+        verify(mediaBlobRepository, never()).deleteLastReference(anyString());
+        verifyNoInteractions(mediaOperationRepository);
+        verify(googleDriveService, never()).files();
+    }
+
+    @Test
+    void releaseMedia_ShouldScheduleDeletionOfLastReference() {
+        // Arrange
+        when(mediaBlobRepository.decrementSharedReferences("media123")).thenReturn(0);
+
+        // Act
+        mediaService.releaseMedia("media123");
+
+        // Assert
+        verify(mediaBlobRepository, times(1)).deleteLastReference("media123");
+        verify(mediaOperationRepository, times(1)).save(argThat(operation ->
+                operation.getType() == MediaOperation.Type.DELETE
+                        && operation.getMediaFileId().equals("media123")));
+        verify(googleDriveService, never()).files();
+        verifyNoInteractions(driveBatchClient);
+    }
+
+    @Test
+    void releaseMedia_ShouldScheduleEachUnreferencedFile() {
+        // Act
+        mediaService.releaseMediaBatch(List.of("media1", "media2", "media1"));
+
+        // Assert
+        verify(mediaOperationRepository, times(2)).save(any(MediaOperation.class));
+        verifyNoInteractions(driveBatchClient);
+    }
+
+    @Test
+    void releaseMedia_ShouldReleaseEveryReference_WhenTracksShareFile() {
+        // Arrange
+        when(mediaBlobRepository.decrementSharedReferences("shared")).thenReturn(1, 0);
+        when(mediaBlobRepository.deleteLastReference("shared")).thenReturn(1);
+
+        // Act
+        mediaService.releaseMediaBatch(List.of("shared", "shared"));
+
+        // Assert
+        verify(mediaBlobRepository, times(2)).decrementSharedReferences("shared");
+        verify(mediaBlobRepository, times(1)).deleteLastReference("shared");
+        verify(mediaOperationRepository, times(1)).save(argThat(operation ->
+                operation.getType() == MediaOperation.Type.DELETE
+                        && operation.getMediaFileId().equals("shared")));
+    }
+
+    @Test
+    void uploadMedia_ShouldReuseBlob_WhenConcurrentFirstUploadWins() throws IOException {
+        // Arrange
+        MultipartFile upload = mock(MultipartFile.class);
+        when(upload.getInputStream()).thenReturn(new ByteArrayInputStream("ID3 audio".getBytes(StandardCharsets.UTF_8)));
+        when(upload.getOriginalFilename()).thenReturn("song.mp3");
+        File uploaded = new File().setId("newCopy").setSize(9L);
+        when(driveCallGuard.call(eq(DriveCallGuard.Operation.UPLOAD), any())).thenReturn(uploaded);
+        when(mediaBlobRepository.incrementReferences(anyString())).thenReturn(0, 1);
+        when(mediaBlobRepository.insertIfAbsent(anyString(), eq("newCopy"), eq(9L))).thenReturn(0);
+        when(mediaBlobRepository.findByContentHash(anyString()))
+                .thenReturn(Optional.of(new MediaBlob("hash", "original", 9L)));
+
+        // Act
+        String fileId = mediaService.uploadMedia(upload);
+
+        // Assert
+        assertEquals("original", fileId);
+        verify(mediaOperationRepository, times(1)).save(argThat(operation ->
+                operation.getMediaFileId().equals("newCopy")));
+        verifyNoInteractions(searchIndex);
+    }
+
+    @Test
+    void releaseMedia_ShouldIgnoreNullId() {
+        // Act
+        mediaService.releaseMedia(null);
+
+        // Assert
+        verifyNoInteractions(mediaBlobRepository);
+    }
+
+    @Test
+    void streamFile_ShouldServeSuffixRange() throws IOException {
+        // Arrange
+        when(metadataCache.get("file1")).thenReturn(Optional.of(
+                new MediaService.FileInfo("file1", "song.mp3", "url", "audio/mpeg", 1000L)));
+        when(localMediaStore.readRange("file1", 500, 999)).thenReturn(Optional.of(new byte[500]));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = mediaService.streamFile("file1", "bytes=-500");
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 500-999/1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(500, bodyOf(response).length);
+    }
+
+    @Test
+    void streamFile_ShouldServeMultipleRangesAsMultipart() throws IOException {
+        // Arrange
+        when(metadataCache.get("file1")).thenReturn(Optional.of(
+                new MediaService.FileInfo("file1", "song.mp3", "url", "audio/mpeg", 1000L)));
+        when(localMediaStore.readRange("file1", 0, 9)).thenReturn(Optional.of(new byte[10]));
+        when(localMediaStore.readRange("file1", 900, 999)).thenReturn(Optional.of(new byte[100]));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = mediaService.streamFile("file1", "bytes=900-, 0-4, 3-9");
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("multipart", response.getHeaders().getContentType().getType());
+        assertEquals("byteranges", response.getHeaders().getContentType().getSubtype());
+        String body = new String(bodyOf(response), StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains("Content-Range: bytes 0-9/1000"));
+        assertTrue(body.contains("Content-Range: bytes 900-999/1000"));
+    }
+
+    @Test
+    void streamFile_ShouldStreamLargeMultipartRangesWithoutBuffering() throws IOException {
+        // Arrange
+        long fileSize = 10_000_000L;
+        when(metadataCache.get("file1")).thenReturn(Optional.of(
+                new MediaService.FileInfo("file1", "song.mp3", "url", "audio/mpeg", fileSize)));
+        when(localMediaStore.readRange("file1", 0, 9)).thenReturn(Optional.of(new byte[10]));
+        when(sharedDownloads.open("file1", 5_000_000L, fileSize))
+                .thenReturn(new ByteArrayInputStream(new byte[5_000_000]));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = mediaService.streamFile("file1", "bytes=0-9,5000000-");
+
+        // Assert
+        verify(sharedDownloads, never()).open(anyString(), anyLong(), any());
+        byte[] body = bodyOf(response);
+        assertEquals(response.getHeaders().getContentLength(), body.length);
+        assertTrue(body.length > 5_000_010);
+        verify(localMediaStore, never()).readRange("file1", 5_000_000L, fileSize - 1);
+        verify(driveCallGuard, never()).call(eq(DriveCallGuard.Operation.DOWNLOAD), any());
+    }
+
+    @Test
+    void streamFile_ShouldNotCacheOrPadShortHead() throws IOException {
+        // Arrange
+        when(metadataCache.get("file1")).thenReturn(Optional.of(
+                new MediaService.FileInfo("file1", "song.mp3", "url", "audio/mpeg", 1000L)));
+        when(hotSegments.getHeadBytes()).thenReturn(100L);
+        when(hotSegments.read(anyString(), anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(hotSegments.recordMiss("file1")).thenReturn(true);
+        when(localMediaStore.readRange(anyString(), anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(sharedDownloads.readArrived(anyString(), anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(driveCallGuard.call(eq(DriveCallGuard.Operation.DOWNLOAD), any()))
+                .thenReturn(new byte[]{1, 2, 3, 4, 5}, new byte[]{6, 7, 8, 9, 10});
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = mediaService.streamFile("file1", "bytes=0-9");
+
+        // Assert
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, bodyOf(response));
+        verify(hotSegments, never()).putHead(anyString(), any());
+    }
+
+    @Test
+    void streamFile_ShouldRejectUnsatisfiableRange() throws IOException {
+        // Arrange
+        when(metadataCache.get("file1")).thenReturn(Optional.of(
+                new MediaService.FileInfo("file1", "song.mp3", "url", "audio/mpeg", 1000L)));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = mediaService.streamFile("file1", "bytes=2000-");
+
+        // Assert
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        verifyNoInteractions(driveCallGuard);
+    }
+
+    @Test
+    void describeFile_ShouldAnswerFromMetadata() throws IOException {
+        // Arrange
+        when(metadataCache.get("file1")).thenReturn(Optional.of(
+                new MediaService.FileInfo("file1", "song.mp3", "url", "audio/mpeg", 1000L)));
+
+        // Act
+        ResponseEntity<Void> response = mediaService.describeFile("file1");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1000L, response.getHeaders().getContentLength());
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        verifyNoInteractions(driveCallGuard, localMediaStore);
+    }
+
+    private static byte[] bodyOf(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
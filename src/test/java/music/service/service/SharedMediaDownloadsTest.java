@@ -0,0 +1,211 @@
+package music.service.service;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.services.drive.Drive;
+import music.service.service.DriveCallGuard.DriveCall;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SharedMediaDownloadsTest {
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private Drive googleDriveService;
+
+    @Mock
+    private DriveCallGuard driveCallGuard;
+
+    @TempDir
+    Path tempDir;
+
+    private LocalMediaStore localMediaStore;
+    private SharedMediaDownloads sharedDownloads;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        localMediaStore = new LocalMediaStore(tempDir.toString(), 1024 * 1024);
+        localMediaStore.init();
+        sharedDownloads = new SharedMediaDownloads(googleDriveService, driveCallGuard, localMediaStore, 2, 5000,
+                64 * 1024, 4);
+        lenient().when(driveCallGuard.call(any(), any())).thenAnswer(invocation ->
+                invocation.getArgument(1, DriveCall.class).execute());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sharedDownloads.shutdown();
+    }
+
+    @Test
+    void open_ShouldShareOneUpstreamFetchWithLateJoiner() throws IOException {
+        // Arrange
+        byte[] content = new byte[200];
+        Arrays.fill(content, (byte) 7);
+        PipedOutputStream upstream = new PipedOutputStream();
+        PipedInputStream drive = new PipedInputStream(upstream, 1024);
+        when(googleDriveService.files().get("file1").executeMediaAsInputStream()).thenReturn(drive);
+
+        // Act
+        InputStream first = sharedDownloads.open("file1", 0, 200L);
+        upstream.write(content, 0, 100);
+        upstream.flush();
+        byte[] firstHalf = first.readNBytes(100);
+
+        InputStream lateJoiner = sharedDownloads.open("file1", 50, 200L);
+        upstream.write(content, 100, 100);
+        upstream.close();
+
+        byte[] firstRest = first.readAllBytes();
+        byte[] joined = lateJoiner.readAllBytes();
+        first.close();
+        lateJoiner.close();
+
+        // Assert
+        assertEquals(100, firstHalf.length);
+        assertEquals(100, firstRest.length);
+        assertEquals(150, joined.length);
+        verify(googleDriveService.files().get("file1"), times(1)).executeMediaAsInputStream();
+    }
+
+    @Test
+    void open_ShouldFailReadersOnTruncatedDownload() throws IOException {
+        // Arrange
+        PipedOutputStream upstream = new PipedOutputStream();
+        PipedInputStream drive = new PipedInputStream(upstream, 1024);
+        when(googleDriveService.files().get("file1").executeMediaAsInputStream()).thenReturn(drive);
+
+        // Act
+        InputStream reader = sharedDownloads.open("file1", 0, 500L);
+        upstream.write(new byte[100]);
+        upstream.close();
+
+        // Assert
+        assertThrows(IOException.class, reader::readAllBytes);
+        reader.close();
+    }
+
+    @Test
+    void open_ShouldFetchLargeFileAsParallelRangesAndStoreIt() throws Exception {
+        // Arrange
+        byte[] content = new byte[5 * 64 * 1024 + 100];
+        new Random(42).nextBytes(content);
+        Drive.Files files = mock(Drive.Files.class);
+        when(googleDriveService.files()).thenReturn(files);
+        when(files.get("big")).thenAnswer(invocation -> rangedRequest(content));
+
+        // Act
+        byte[] read;
+        try (InputStream reader = sharedDownloads.open("big", 0, (long) content.length)) {
+            read = reader.readAllBytes();
+        }
+
+        // Assert
+        assertArrayEquals(content, read);
+        verify(files, times(6)).get("big");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (localMediaStore.get("big").isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(localMediaStore.get("big").orElseThrow().isComplete());
+        assertArrayEquals(Arrays.copyOfRange(content, 200_000, 200_100),
+                localMediaStore.readRange("big", 200_000, 200_099).orElseThrow());
+    }
+
+    @Test
+    void open_ShouldReadRangeBodiesInsideGuardAndResumeOnRetry() throws Exception {
+        // Arrange
+        byte[] content = new byte[3 * 64 * 1024];
+        new Random(7).nextBytes(content);
+        ThreadLocal<Boolean> insideGuard = ThreadLocal.withInitial(() -> false);
+        AtomicBoolean readOutsideGuard = new AtomicBoolean();
+        AtomicBoolean failed = new AtomicBoolean();
+        // Сторож повторяет вызов после ошибки, как DriveCallGuard для идемпотентной операции
+        doAnswer(invocation -> {
+            DriveCall<?> call = invocation.getArgument(1, DriveCall.class);
+            insideGuard.set(true);
+            try {
+                return call.execute();
+            } catch (IOException e) {
+                return call.execute();
+            } finally {
+                insideGuard.set(false);
+            }
+        }).when(driveCallGuard).call(any(), any());
+        Drive.Files files = mock(Drive.Files.class);
+        when(googleDriveService.files()).thenReturn(files);
+        when(files.get("big")).thenAnswer(invocation -> {
+            Drive.Files.Get request = mock(Drive.Files.Get.class);
+            HttpHeaders headers = new HttpHeaders();
+            when(request.getRequestHeaders()).thenReturn(headers);
+            when(request.executeMediaAsInputStream()).thenAnswer(execution -> {
+                String[] bounds = headers.getRange().substring("bytes=".length()).split("-");
+                int start = Integer.parseInt(bounds[0]);
+                int end = Integer.parseInt(bounds[1]);
+                boolean breakMidway = start == 0 && failed.compareAndSet(false, true);
+                return new FilterInputStream(new ByteArrayInputStream(content, start, end - start + 1)) {
+                    private int served;
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        if (!insideGuard.get()) {
+                            readOutsideGuard.set(true);
+                        }
+                        if (breakMidway && served >= 1000) {
+                            throw new IOException("Connection reset");
+                        }
+                        int read = super.read(buffer, offset, breakMidway ? Math.min(length, 1000) : length);
+                        served += Math.max(read, 0);
+                        return read;
+                    }
+                };
+            });
+            return request;
+        });
+
+        // Act
+        byte[] read;
+        try (InputStream reader = sharedDownloads.open("big", 0, (long) content.length)) {
+            read = reader.readAllBytes();
+        }
+
+        // Assert
+        assertArrayEquals(content, read);
+        assertTrue(failed.get());
+        assertFalse(readOutsideGuard.get());
+        verify(files, times(4)).get("big");
+    }
+
+    private static Drive.Files.Get rangedRequest(byte[] content) throws IOException {
+        Drive.Files.Get request = mock(Drive.Files.Get.class);
+        HttpHeaders headers = new HttpHeaders();
+        when(request.getRequestHeaders()).thenReturn(headers);
+        when(request.executeMediaAsInputStream()).thenAnswer(invocation -> {
+            String[] bounds = headers.getRange().substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            return new ByteArrayInputStream(content, start, end - start + 1);
+        });
+        return request;
+    }
+}
@@ -1,6 +1,5 @@
 package music.service.service;
 
-import com.google.api.services.drive.Drive;
 import music.service.dto.*;
 import music.service.exception.ResourceNotFoundException;
 import music.service.exception.ValidationException;
@@ -13,6 +12,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -37,9 +37,6 @@ class TrackServiceTest {
     @Mock
     private CacheService cacheService;
 
-    @Mock
-    private Drive googleDriveService;
-
     @Mock
     private MediaService mediaService;
 
@@ -80,8 +77,8 @@ class TrackServiceTest {
         testTrack.setDuration(180);
         testTrack.setGenre("Rock");
         testTrack.setAlbum(testAlbum);
-        testTrack.setUsers(Set.of(testUser));
-        testTrack.setPlaylists(Set.of(testPlaylist));
+        testTrack.setUsers(new HashSet<>(Set.of(testUser)));
+        testTrack.setPlaylists(new HashSet<>(Set.of(testPlaylist)));
         testTrack.setMediaFileId("media123");
 
         createRequest = new CreateTrackRequest();
@@ -99,8 +96,9 @@ class TrackServiceTest {
         updateRequest.setPlaylistIds(List.of(1L));
 
         mockMediaFile = mock(MultipartFile.class);
-        when(mockMediaFile.getContentType()).thenReturn("audio/mpeg");
-        when(mockMediaFile.isEmpty()).thenReturn(false);
+        // Нужны только тестам загрузки, остальные тесты файл не трогают
+        lenient().when(mockMediaFile.getContentType()).thenReturn("audio/mpeg");
+        lenient().when(mockMediaFile.isEmpty()).thenReturn(false);
     }
 
     @Test
@@ -108,7 +106,7 @@ class TrackServiceTest {
         // Arrange
         when(albumRepository.findById(1L)).thenReturn(Optional.of(testAlbum));
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(mediaService.uploadMedia(mockMediaFile)).thenReturn("newMedia123");
+        when(mediaService.uploadMedia(eq(mockMediaFile), anySet())).thenReturn("newMedia123");
         when(trackRepository.save(any(Track.class))).thenReturn(testTrack);
 
         // Act
@@ -167,8 +165,8 @@ class TrackServiceTest {
 
         // Assert
         verify(trackRepository, times(1)).delete(testTrack);
-        verify(googleDriveService, times(1)).files().delete("media123");
-        verify(trackService, times(1)).evictAllTrackCaches();
+        verify(mediaService, times(1)).releaseMedia("media123");
+        verify(cacheService, atLeastOnce()).evictByPattern(anyString());
         verify(albumService, times(1)).clearCacheForAlbum(1L);
     }
 
@@ -191,7 +189,7 @@ class TrackServiceTest {
     void getAllTracks_ShouldFetchFromDb_WhenNoCache() {
         // Arrange
         Page<Track> dbPage = new PageImpl<>(List.of(testTrack));
-        when(trackRepository.findTracks(any(), any(), any(), any(), any(), any())).thenReturn(dbPage);
+        when(trackRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(dbPage);
 
         // Act
         Page<Track> result = trackService.getAllTracks("testUser", "Test Album", "Test Track", "Rock", "Test Playlist", PageRequest.of(0, 10));
@@ -201,6 +199,54 @@ class TrackServiceTest {
         verify(cacheService, times(1)).put(anyString(), eq(dbPage));
     }
 
+    @Test
+    void getTrackSlice_ShouldEstimateTotalOnlyForUnfilteredListing() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<Track> slice = new SliceImpl<>(List.of(testTrack), pageable, true);
+        when(trackRepository.findSlice(any(), eq(pageable))).thenReturn(slice);
+        when(trackRepository.estimateTotal()).thenReturn(OptionalLong.of(125_000));
+
+        // Act
+        SliceResponse<TrackResponse> unfiltered = trackService.getTrackSlice(
+                null, null, null, null, null, pageable, true);
+        SliceResponse<TrackResponse> filtered = trackService.getTrackSlice(
+                null, null, null, "Rock", null, pageable, true);
+
+        // Assert
+        assertEquals(125_000L, unfiltered.getApproximateTotal());
+        assertTrue(unfiltered.isHasNext());
+        assertNull(filtered.getApproximateTotal());
+        verify(trackRepository, times(1)).estimateTotal();
+        verify(trackRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void searchTracks_ShouldKeepRankingOrder() {
+        // Arrange
+        Track second = new Track("Second", 200);
+        second.setId(2L);
+        TrackRepository.SearchHit bestHit = mock(TrackRepository.SearchHit.class);
+        TrackRepository.SearchHit nextHit = mock(TrackRepository.SearchHit.class);
+        when(bestHit.getId()).thenReturn(2L);
+        when(nextHit.getId()).thenReturn(testTrack.getId());
+        when(trackRepository.searchTracks("rock", "%rock%", 20)).thenReturn(List.of(bestHit, nextHit));
+        when(trackRepository.findAllById(List.of(2L, testTrack.getId()))).thenReturn(List.of(testTrack, second));
+
+        // Act
+        List<TrackResponse> result = trackService.searchTracks("  rock ", 20);
+
+        // Assert
+        assertEquals(List.of(2L, testTrack.getId()),
+                result.stream().map(TrackResponse::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void searchTracks_ShouldRejectBlankQuery() {
+        assertThrows(ValidationException.class, () -> trackService.searchTracks(" ", 20));
+        verifyNoInteractions(trackRepository);
+    }
+
     @Test
     void addTracksBulk_ShouldCreateMultipleTracks() throws ValidationException {
         // Arrange
@@ -209,6 +255,7 @@ class TrackServiceTest {
 
         when(albumRepository.findAllById(any())).thenReturn(List.of(testAlbum));
         when(userRepository.findAllById(any())).thenReturn(List.of(testUser));
+        when(albumRepository.findById(1L)).thenReturn(Optional.of(testAlbum));
         when(trackRepository.saveAll(any())).thenReturn(List.of(testTrack, testTrack));
 
         // Act
@@ -247,7 +294,8 @@ class TrackServiceTest {
     @Test
     void validateTrackFile_ShouldPass_ForValidAudio() {
         // Arrange
-        when(mockMediaFile.getContentType()).thenReturn("audio/mpeg");
+        // Нужны только тестам загрузки, остальные тесты файл не трогают
+        lenient().when(mockMediaFile.getContentType()).thenReturn("audio/mpeg");
 
         // Act & Assert (no exception)
         trackService.validateTrackFile(mockMediaFile);
@@ -45,6 +45,9 @@ class UserServiceTest {
     @Mock
     private TrackService trackService;
 
+    @Mock
+    private MediaService mediaService;
+
     @InjectMocks
     private UserService userService;
 
@@ -332,6 +335,7 @@ class UserServiceTest {
         // Arrange
         Track orphanedTrack = new Track();
         orphanedTrack.setId(2L);
+        orphanedTrack.setMediaFileId("orphanMedia");
         orphanedTrack.getUsers().add(testUser);
         testUser.getTracks().add(orphanedTrack);
 
@@ -342,5 +346,6 @@ class UserServiceTest {
 
         // Assert
         verify(trackRepository, times(1)).delete(orphanedTrack);
+        verify(mediaService, times(1)).releaseMediaBatch(argThat((List<String> ids) -> ids.contains("orphanMedia")));
     }
 }
\ No newline at end of file